@@ -0,0 +1,223 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.austriaaddresshelper;
+
+import static org.openstreetmap.josm.tools.I18n.marktr;
+import static org.openstreetmap.josm.tools.I18n.tr;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.openstreetmap.josm.command.ChangePropertyCommand;
+import org.openstreetmap.josm.command.ChangePropertyKeyCommand;
+import org.openstreetmap.josm.command.Command;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.validation.OsmValidator;
+import org.openstreetmap.josm.data.validation.Severity;
+import org.openstreetmap.josm.data.validation.Test;
+import org.openstreetmap.josm.data.validation.TestError;
+import org.openstreetmap.josm.data.validation.tests.Addresses;
+import org.openstreetmap.josm.gui.progress.ProgressMonitor;
+
+/**
+ * Validator test that checks the addr:* tags of objects against the address register data known to this plugin, the
+ * {@link MunicipalityTable} and the other addresses in the same layer.
+ * <p>
+ * JOSM's own {@link Addresses} test reports duplicate house numbers as well. To avoid two warnings for the same
+ * objects, the duplicate check of this test only runs while that test is disabled.
+ */
+public class AddressConsistencyTest extends Test.TagTest {
+    protected static final int DUPLICATE_HOUSENUMBER = 41_000;
+    protected static final int WRONG_ADDRESS_TYPE = 41_001;
+    protected static final int STREET_NAME_DIFFERS = 41_002;
+    protected static final int UNKNOWN_POSTCODE = 41_003;
+    protected static final int WRONG_POSTCODE = 41_004;
+    protected static final int UNKNOWN_LOCALITY = 41_005;
+    protected static final int STREET_NOT_IN_REGISTER = 41_006;
+
+    protected final List<OsmPrimitive> primitivesWithHouseNumber = new ArrayList<>();
+
+    public AddressConsistencyTest() {
+        super(tr("Austrian addresses"), tr("Checks addresses against the Austrian address register."));
+    }
+
+    @Override
+    public void startTest(ProgressMonitor progressMonitor) {
+        super.startTest(progressMonitor);
+        primitivesWithHouseNumber.clear();
+    }
+
+    @Override
+    public void check(OsmPrimitive p) {
+        if (!p.isUsable()) {
+            return;
+        }
+
+        if (p.hasKey("addr:housenumber")) {
+            primitivesWithHouseNumber.add(p);
+        }
+
+        final String streetKey = p.hasKey("addr:street") ? "addr:street" : "addr:place";
+        final String streetOrPlace = p.get(streetKey);
+        final String postcode = p.get("addr:postcode");
+        final AddressReferenceData.Street street = AddressReferenceData.getStreet(p.get("addr:city"), postcode,
+                streetOrPlace);
+
+        checkMunicipality(p, street == null ? streetOrPlace : null);
+
+        if (street == null) {
+            if (postcode != null && !AddressReferenceData.getPostcodes(p.get("addr:city"), streetOrPlace).isEmpty()) {
+                // The known postcodes of a street are only the ones seen so far, hence this is not a warning.
+                errors.add(TestError.builder(this, Severity.OTHER, UNKNOWN_POSTCODE)
+                        .message(tr("Austrian addresses"), marktr("Postcode {0} is not known for {1} in {2}"),
+                                postcode, streetOrPlace, p.get("addr:city"))
+                        .primitives(p)
+                        .build());
+            }
+
+            return;
+        }
+
+        if (!street.getName().equals(streetOrPlace)) {
+            errors.add(TestError.builder(this, Severity.WARNING, STREET_NAME_DIFFERS)
+                    .message(tr("Austrian addresses"), marktr("Street name differs from the address register: {0} instead of {1}"),
+                            streetOrPlace, street.getName())
+                    .primitives(p)
+                    .build());
+        }
+
+        // If both types have been seen for the name in this postcode, either may be correct.
+        if (street.getAddressType() != null && !streetKey.equals("addr:" + street.getAddressType())) {
+            errors.add(TestError.builder(this, Severity.WARNING, WRONG_ADDRESS_TYPE)
+                    .message(tr("Austrian addresses"), marktr("{0} is used where {1} is expected"),
+                            streetKey, "addr:" + street.getAddressType())
+                    .primitives(p)
+                    .build());
+        }
+    }
+
+    /**
+     * Checks the postcode, the locality and the street of an object against the {@link MunicipalityTable}.
+     *
+     * @param p the object
+     * @param streetOrPlace the street or place to look up in the register, null if it is known to be correct or
+     *                      reported as misspelled already
+     */
+    protected void checkMunicipality(OsmPrimitive p, String streetOrPlace) {
+        final MunicipalityTable table = MunicipalityTable.getInstance();
+        final String municipality = p.get("addr:city");
+        final String postcode = p.get("addr:postcode");
+
+        if (table == null || postcode == null || !table.containsMunicipality(municipality)) {
+            return;
+        }
+
+        final MunicipalityTable.Entry entry = table.get(municipality, postcode);
+
+        if (entry == null) {
+            errors.add(TestError.builder(this, Severity.WARNING, WRONG_POSTCODE)
+                    .message(tr("Austrian addresses"), marktr("Postcode {0} does not belong to {1}"),
+                            postcode, municipality)
+                    .primitives(p)
+                    .build());
+            return;
+        }
+
+        if (p.hasKey("addr:suburb") && !entry.containsLocality(p.get("addr:suburb"))) {
+            errors.add(TestError.builder(this, Severity.WARNING, UNKNOWN_LOCALITY)
+                    .message(tr("Austrian addresses"), marktr("{0} is not a locality of {1} {2}"),
+                            p.get("addr:suburb"), postcode, municipality)
+                    .primitives(p)
+                    .build());
+        }
+
+        if (streetOrPlace != null && !entry.containsStreet(streetOrPlace)) {
+            errors.add(TestError.builder(this, Severity.WARNING, STREET_NOT_IN_REGISTER)
+                    .message(tr("Austrian addresses"), marktr("{0} is not in the address register of {1} {2}"),
+                            streetOrPlace, postcode, municipality)
+                    .primitives(p)
+                    .build());
+        }
+    }
+
+    @Override
+    public void endTest() {
+        if (isCoreDuplicateCheckEnabled()) {
+            primitivesWithHouseNumber.clear();
+        }
+
+        final Set<String> reportedAddresses = new HashSet<>();
+
+        // The index covers the whole layer, so duplicates are also found if only the changed objects are validated.
+        for (OsmPrimitive p : primitivesWithHouseNumber) {
+            final String key = AddressIndex.getAddressKey(p);
+
+            if (key == null || p.getDataSet() == null || !reportedAddresses.add(key)) {
+                continue;
+            }
+
+            final List<OsmPrimitive> duplicates = AddressIndex.forDataSet(p.getDataSet()).getPrimitivesWithSameAddress(p);
+
+            if (duplicates.size() > 1) {
+                errors.add(TestError.builder(this, Severity.WARNING, DUPLICATE_HOUSENUMBER)
+                        .message(tr("Austrian addresses"), marktr("Duplicate house number"))
+                        .primitives(duplicates)
+                        .build());
+            }
+        }
+
+        primitivesWithHouseNumber.clear();
+        super.endTest();
+    }
+
+    private static boolean isCoreDuplicateCheckEnabled() {
+        final Addresses addresses = OsmValidator.getTest(Addresses.class);
+        return addresses != null && addresses.enabled;
+    }
+
+    @Override
+    public boolean isFixable(TestError testError) {
+        if (testError.getCode() == WRONG_ADDRESS_TYPE) {
+            // Only fixable as long as a single address type is known for the street.
+            final AddressReferenceData.Street street = getStreet(testError);
+            return street != null && street.getAddressType() != null;
+        }
+
+        return testError.getCode() == STREET_NAME_DIFFERS;
+    }
+
+    @Override
+    public Command fixError(TestError testError) {
+        final AddressReferenceData.Street street = getStreet(testError);
+
+        if (street == null) {
+            return null;
+        }
+
+        final OsmPrimitive p = testError.getPrimitives().iterator().next();
+        final String streetKey = p.hasKey("addr:street") ? "addr:street" : "addr:place";
+
+        if (testError.getCode() == WRONG_ADDRESS_TYPE) {
+            if (street.getAddressType() == null) {
+                return null;
+            }
+
+            return new ChangePropertyKeyCommand(p, streetKey, "addr:" + street.getAddressType());
+        } else if (testError.getCode() == STREET_NAME_DIFFERS) {
+            return new ChangePropertyCommand(p, streetKey, street.getName());
+        }
+
+        return null;
+    }
+
+    private static AddressReferenceData.Street getStreet(TestError testError) {
+        if (testError.getPrimitives().size() != 1) {
+            return null;
+        }
+
+        final OsmPrimitive p = testError.getPrimitives().iterator().next();
+        final String streetKey = p.hasKey("addr:street") ? "addr:street" : "addr:place";
+        return AddressReferenceData.getStreet(p.get("addr:city"), p.get("addr:postcode"), p.get(streetKey));
+    }
+}
@@ -0,0 +1,136 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.austriaaddresshelper;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Shared dictionary for address components. Bulk runs resolve many addresses that share the same municipality,
+ * postcode and street, so those strings and the tags derived from them are only kept once. The dictionary is cleared
+ * at the end of every bulk run and whenever it grows beyond a fixed size, so it never outlives the addresses it helps.
+ */
+public final class AddressDictionary {
+    // Enough for the streets of a large bulk run, small enough to not matter for the heap of JOSM.
+    private static final int MAX_STRINGS = 20_000;
+    private static final int MAX_TAG_TEMPLATES = 10_000;
+
+    private static final Map<String, String> strings = new ConcurrentHashMap<>();
+    private static final Map<TemplateKey, SortedMap<String, String>> tagTemplates = new ConcurrentHashMap<>();
+
+    private AddressDictionary() {
+        // Hide default constructor
+    }
+
+    /**
+     * Returns the canonical instance of an address component.
+     *
+     * @param value the address component, may be null
+     * @return the shared instance equal to the given value
+     */
+    public static String intern(String value) {
+        if (value == null) {
+            return null;
+        }
+
+        if (strings.size() >= MAX_STRINGS) {
+            strings.clear();
+        }
+
+        String existing = strings.putIfAbsent(value, value);
+        return existing == null ? value : existing;
+    }
+
+    /**
+     * Returns the tags that all addresses in the same street (or place) share, i.e. everything but the house number
+     * and the address date.
+     *
+     * @param municipality the municipality (addr:city)
+     * @param suburb the locality if it is needed to disambiguate the address (addr:suburb), otherwise null
+     * @param postcode the postcode
+     * @param addressType "street", "place" or null if it is not known yet
+     * @param streetOrPlace the name of the street or place
+     * @return an immutable, sorted map of the shared tags
+     */
+    public static SortedMap<String, String> getTagTemplate(String municipality, String suburb, String postcode,
+                                                           String addressType, String streetOrPlace) {
+        if (tagTemplates.size() >= MAX_TAG_TEMPLATES) {
+            tagTemplates.clear();
+        }
+
+        return tagTemplates.computeIfAbsent(
+                new TemplateKey(municipality, suburb, postcode, addressType, streetOrPlace),
+                AddressDictionary::createTagTemplate);
+    }
+
+    private static SortedMap<String, String> createTagTemplate(TemplateKey key) {
+        final SortedMap<String, String> tags = new TreeMap<>();
+
+        tags.put("addr:country", ResolvedAddress.COUNTRY);
+        tags.put("addr:city", key.municipality);
+
+        if (key.suburb != null) {
+            tags.put("addr:suburb", key.suburb);
+        }
+
+        tags.put("addr:postcode", key.postcode);
+
+        if (key.addressType != null) {
+            tags.put("addr:" + key.addressType, key.streetOrPlace);
+        }
+
+        return Collections.unmodifiableSortedMap(tags);
+    }
+
+    /**
+     * Forgets all shared strings and tag templates.
+     */
+    public static void clear() {
+        strings.clear();
+        tagTemplates.clear();
+    }
+
+    private static final class TemplateKey {
+        private final String municipality;
+        private final String suburb;
+        private final String postcode;
+        private final String addressType;
+        private final String streetOrPlace;
+
+        TemplateKey(String municipality, String suburb, String postcode, String addressType, String streetOrPlace) {
+            this.municipality = municipality;
+            this.suburb = suburb;
+            this.postcode = postcode;
+            this.addressType = addressType;
+            this.streetOrPlace = streetOrPlace;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof TemplateKey)) {
+                return false;
+            }
+            TemplateKey other = (TemplateKey) o;
+            return Objects.equals(municipality, other.municipality)
+                    && Objects.equals(suburb, other.suburb)
+                    && Objects.equals(postcode, other.postcode)
+                    && Objects.equals(addressType, other.addressType)
+                    && Objects.equals(streetOrPlace, other.streetOrPlace);
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = Objects.hashCode(municipality);
+            hash = 31 * hash + Objects.hashCode(suburb);
+            hash = 31 * hash + Objects.hashCode(postcode);
+            hash = 31 * hash + Objects.hashCode(addressType);
+            return 31 * hash + Objects.hashCode(streetOrPlace);
+        }
+    }
+}
@@ -0,0 +1,206 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.austriaaddresshelper;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.event.AbstractDatasetChangedEvent;
+import org.openstreetmap.josm.data.osm.event.DataChangedEvent;
+import org.openstreetmap.josm.data.osm.event.DataSetListener;
+import org.openstreetmap.josm.data.osm.event.NodeMovedEvent;
+import org.openstreetmap.josm.data.osm.event.PrimitivesAddedEvent;
+import org.openstreetmap.josm.data.osm.event.PrimitivesRemovedEvent;
+import org.openstreetmap.josm.data.osm.event.RelationMembersChangedEvent;
+import org.openstreetmap.josm.data.osm.event.TagsChangedEvent;
+import org.openstreetmap.josm.data.osm.event.WayNodesChangedEvent;
+import org.openstreetmap.josm.gui.layer.LayerManager.LayerAddEvent;
+import org.openstreetmap.josm.gui.layer.LayerManager.LayerChangeListener;
+import org.openstreetmap.josm.gui.layer.LayerManager.LayerOrderChangeEvent;
+import org.openstreetmap.josm.gui.layer.LayerManager.LayerRemoveEvent;
+import org.openstreetmap.josm.gui.layer.OsmDataLayer;
+
+/**
+ * Index of all objects with a house number in a data set, grouped by their complete address. It is built once and
+ * then kept up to date with the changes of the data set, so validating only the changed objects does not require
+ * scanning the whole data set again.
+ */
+public final class AddressIndex implements DataSetListener {
+    private static AddressIndex instance;
+
+    private final DataSet dataSet;
+    private final Map<String, List<OsmPrimitive>> primitivesByAddress = new HashMap<>();
+    private final Map<OsmPrimitive, String> addressByPrimitive = new HashMap<>();
+
+    private AddressIndex(DataSet dataSet) {
+        this.dataSet = dataSet;
+        rebuild();
+    }
+
+    /**
+     * Returns the index of the given data set. Only the index of the data set that was validated last is kept.
+     *
+     * @param dataSet the data set
+     * @return the address index of the data set
+     */
+    public static synchronized AddressIndex forDataSet(DataSet dataSet) {
+        if (instance == null || instance.dataSet != dataSet) {
+            clear();
+            instance = new AddressIndex(dataSet);
+            dataSet.addDataSetListener(instance);
+        }
+
+        return instance;
+    }
+
+    /**
+     * Discards the index.
+     */
+    public static synchronized void clear() {
+        if (instance != null) {
+            instance.dataSet.removeDataSetListener(instance);
+            instance = null;
+        }
+    }
+
+    /**
+     * Builds the key under which objects with the same address are grouped.
+     *
+     * @param primitive the object
+     * @return the address key, or null if the object has no house number
+     */
+    public static String getAddressKey(OsmPrimitive primitive) {
+        String houseNumber = primitive.get("addr:housenumber");
+
+        // Hidden (filtered) objects are still part of the data and must be counted as duplicates.
+        if (houseNumber == null || primitive.isDeleted() || primitive.isIncomplete()) {
+            return null;
+        }
+
+        String streetOrPlace = primitive.get("addr:street");
+        if (streetOrPlace == null) {
+            streetOrPlace = primitive.get("addr:place");
+        }
+
+        return primitive.get("addr:city") + '\n' + primitive.get("addr:suburb") + '\n'
+                + primitive.get("addr:postcode") + '\n' + streetOrPlace + '\n' + houseNumber;
+    }
+
+    /**
+     * Returns all objects with the same address as the given one, including the object itself.
+     *
+     * @param primitive the object
+     * @return the objects with the same address
+     */
+    public synchronized List<OsmPrimitive> getPrimitivesWithSameAddress(OsmPrimitive primitive) {
+        String key = addressByPrimitive.get(primitive);
+        List<OsmPrimitive> primitives = key == null ? null : primitivesByAddress.get(key);
+
+        return primitives == null ? Collections.emptyList() : new ArrayList<>(primitives);
+    }
+
+    private synchronized void rebuild() {
+        primitivesByAddress.clear();
+        addressByPrimitive.clear();
+        add(dataSet.allPrimitives());
+    }
+
+    private void add(Collection<? extends OsmPrimitive> primitives) {
+        for (OsmPrimitive primitive : primitives) {
+            String key = getAddressKey(primitive);
+
+            if (key != null) {
+                addressByPrimitive.put(primitive, key);
+                primitivesByAddress.computeIfAbsent(key, k -> new ArrayList<>(1)).add(primitive);
+            }
+        }
+    }
+
+    private void remove(Collection<? extends OsmPrimitive> primitives) {
+        for (OsmPrimitive primitive : primitives) {
+            String key = addressByPrimitive.remove(primitive);
+            List<OsmPrimitive> primitivesWithSameAddress = key == null ? null : primitivesByAddress.get(key);
+
+            if (primitivesWithSameAddress != null) {
+                primitivesWithSameAddress.remove(primitive);
+
+                if (primitivesWithSameAddress.isEmpty()) {
+                    primitivesByAddress.remove(key);
+                }
+            }
+        }
+    }
+
+    @Override
+    public synchronized void primitivesAdded(PrimitivesAddedEvent event) {
+        add(event.getPrimitives());
+    }
+
+    @Override
+    public synchronized void primitivesRemoved(PrimitivesRemovedEvent event) {
+        remove(event.getPrimitives());
+    }
+
+    @Override
+    public synchronized void tagsChanged(TagsChangedEvent event) {
+        Collection<OsmPrimitive> changed = Collections.singleton(event.getPrimitive());
+        remove(changed);
+        add(changed);
+    }
+
+    @Override
+    public void nodeMoved(NodeMovedEvent event) {
+        // Addresses do not depend on the geometry.
+    }
+
+    @Override
+    public void wayNodesChanged(WayNodesChangedEvent event) {
+        // Addresses do not depend on the geometry.
+    }
+
+    @Override
+    public void relationMembersChanged(RelationMembersChangedEvent event) {
+        // Addresses do not depend on the members.
+    }
+
+    @Override
+    public void otherDatasetChange(AbstractDatasetChangedEvent event) {
+        // Nothing to do.
+    }
+
+    @Override
+    public void dataChanged(DataChangedEvent event) {
+        rebuild();
+    }
+
+    /**
+     * Discards the index when the layer of its data set is removed.
+     */
+    public static class LayerListener implements LayerChangeListener {
+        @Override
+        public void layerAdded(LayerAddEvent e) {
+            // Nothing to do.
+        }
+
+        @Override
+        public void layerRemoving(LayerRemoveEvent e) {
+            if (e.getRemovedLayer() instanceof OsmDataLayer) {
+                synchronized (AddressIndex.class) {
+                    if (instance != null && instance.dataSet == ((OsmDataLayer) e.getRemovedLayer()).getDataSet()) {
+                        clear();
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void layerOrderChanged(LayerOrderChangeEvent e) {
+            // Nothing to do.
+        }
+    }
+}
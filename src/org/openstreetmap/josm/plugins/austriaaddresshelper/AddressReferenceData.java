@@ -0,0 +1,213 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.austriaaddresshelper;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.openstreetmap.josm.spi.preferences.Config;
+import org.openstreetmap.josm.tools.Logging;
+
+/**
+ * Reference data from the Austrian address register that is used to validate addresses without querying the reverse
+ * geocoder. The streets (and places) are learned from the answers of the reverse geocoder and kept in the cache
+ * directory of JOSM, so they are available in later sessions as well.
+ * <p>
+ * The cache file has one line per street, postcode and address type: municipality, name, address type and postcode,
+ * separated by tabs.
+ */
+public final class AddressReferenceData {
+    // Municipality -> normalized street name -> postcode -> street. The same name can be a street in one postcode (or
+    // locality) and a place in another, so the address types are only compared within one postcode.
+    private static final Map<String, Map<String, Map<String, Street>>> streets = new ConcurrentHashMap<>();
+
+    private static boolean loaded;
+
+    private AddressReferenceData() {
+        // Hide default constructor
+    }
+
+    /**
+     * Remembers the street (or place) of an address returned by the reverse geocoder.
+     *
+     * @param address the address, ignored if its address type is not known
+     */
+    public static void learn(ResolvedAddress address) {
+        if (address.getAddressType() == null || address.getMunicipality() == null
+                || address.getStreetOrPlace() == null || address.getPostcode() == null) {
+            return;
+        }
+
+        ensureLoaded();
+
+        if (add(address.getMunicipality(), address.getStreetOrPlace(), address.getAddressType(),
+                address.getPostcode())) {
+            save(address.getMunicipality(), address.getStreetOrPlace(), address.getAddressType(),
+                    address.getPostcode());
+        }
+    }
+
+    /**
+     * Looks up a street (or place) of a municipality and postcode, ignoring differences in spelling such as
+     * "Hauptstr." and "Hauptstraße".
+     *
+     * @param municipality the municipality (addr:city)
+     * @param postcode the postcode
+     * @param streetOrPlace the name of the street or place as tagged
+     * @return the street as it is named in the address register, or null if it is not known
+     */
+    public static Street getStreet(String municipality, String postcode, String streetOrPlace) {
+        final Map<String, Street> streetsByPostcode = getStreetsByPostcode(municipality, streetOrPlace);
+        return streetsByPostcode == null || postcode == null ? null : streetsByPostcode.get(postcode);
+    }
+
+    /**
+     * Returns the postcodes in which a street (or place) of a municipality is known.
+     *
+     * @param municipality the municipality (addr:city)
+     * @param streetOrPlace the name of the street or place as tagged
+     * @return the known postcodes, empty if the street is not known at all
+     */
+    public static Set<String> getPostcodes(String municipality, String streetOrPlace) {
+        final Map<String, Street> streetsByPostcode = getStreetsByPostcode(municipality, streetOrPlace);
+        return streetsByPostcode == null
+                ? Collections.emptySet()
+                : Collections.unmodifiableSet(streetsByPostcode.keySet());
+    }
+
+    private static Map<String, Street> getStreetsByPostcode(String municipality, String streetOrPlace) {
+        if (municipality == null || streetOrPlace == null) {
+            return null;
+        }
+
+        ensureLoaded();
+
+        final Map<String, Map<String, Street>> streetsOfMunicipality = streets.get(municipality);
+        return streetsOfMunicipality == null ? null : streetsOfMunicipality.get(normalizeStreetName(streetOrPlace));
+    }
+
+    private static boolean add(String municipality, String name, String addressType, String postcode) {
+        return streets.computeIfAbsent(municipality, m -> new ConcurrentHashMap<>())
+                .computeIfAbsent(normalizeStreetName(name), n -> new ConcurrentHashMap<>())
+                .computeIfAbsent(postcode, c -> new Street(name))
+                .addressTypes.add(addressType);
+    }
+
+    static File getFile() {
+        return new File(new File(Config.getDirs().getCacheDirectory(true), "austriaaddresshelper"), "streets.tsv");
+    }
+
+    private static synchronized void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+
+        loaded = true;
+        File file = getFile();
+
+        if (!file.isFile()) {
+            return;
+        }
+
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split("\t", -1);
+
+                // Skip lines that were cut off when JOSM was killed while writing.
+                if (fields.length != 4 || fields[0].isEmpty() || fields[1].isEmpty()
+                        || !AddressTypeDialog.ALLOWED_ADDRESS_TYPES.contains(fields[2]) || fields[3].isEmpty()) {
+                    continue;
+                }
+
+                add(fields[0], fields[1], fields[2], fields[3]);
+            }
+        } catch (IOException e) {
+            Logging.warn(e);
+        }
+    }
+
+    private static synchronized void save(String municipality, String name, String addressType, String postcode) {
+        // The values come from the reverse geocoder, a tab or line break would break the file format.
+        if ((municipality + name + postcode).matches("(?s).*[\\t\\r\\n].*")) {
+            return;
+        }
+
+        File file = getFile();
+        File directory = file.getParentFile();
+
+        try {
+            if (!directory.isDirectory() && !directory.mkdirs()) {
+                throw new IOException("Could not create " + directory);
+            }
+
+            try (BufferedWriter writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                writer.write(municipality + '\t' + name + '\t' + addressType + '\t' + postcode);
+                writer.newLine();
+            }
+        } catch (IOException e) {
+            Logging.warn(e);
+        }
+    }
+
+    static String normalizeStreetName(String name) {
+        StringBuilder normalized = new StringBuilder(name.length());
+        String lowerCase = name.toLowerCase(Locale.GERMAN).replace("ß", "ss");
+
+        for (int i = 0; i < lowerCase.length(); i++) {
+            char c = lowerCase.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                normalized.append(c);
+            }
+        }
+
+        // "Hauptstraße", "Hauptstrasse" and "Hauptstr." all refer to the same street.
+        int length = normalized.length();
+        if (normalized.toString().endsWith("strasse")) {
+            normalized.setLength(length - "asse".length());
+        }
+
+        return normalized.toString();
+    }
+
+    /**
+     * A street or place of the address register within one municipality and postcode.
+     */
+    public static final class Street {
+        private final String name;
+        private final Set<String> addressTypes = ConcurrentHashMap.newKeySet();
+
+        Street(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return the address types ("street", "place") seen for this name so far
+         */
+        public Set<String> getAddressTypes() {
+            return Collections.unmodifiableSet(addressTypes);
+        }
+
+        /**
+         * @return "street" or "place", or null if addresses of both types have been seen
+         */
+        public String getAddressType() {
+            return addressTypes.size() == 1 ? addressTypes.iterator().next() : null;
+        }
+    }
+}
@@ -0,0 +1,248 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.austriaaddresshelper;
+
+import static org.openstreetmap.josm.tools.I18n.tr;
+import static org.openstreetmap.josm.tools.I18n.trn;
+
+import java.awt.BorderLayout;
+import java.awt.Dimension;
+import java.awt.FlowLayout;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+import javax.swing.BorderFactory;
+import javax.swing.DefaultCellEditor;
+import javax.swing.JButton;
+import javax.swing.JComboBox;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JTable;
+import javax.swing.table.AbstractTableModel;
+
+import org.openstreetmap.josm.data.osm.DefaultNameFormatter;
+import org.openstreetmap.josm.gui.ExtendedDialog;
+import org.openstreetmap.josm.gui.MainApplication;
+
+/**
+ * Dialog to accept or reject all addresses of a bulk run that need a decision in one pass.
+ */
+public class AddressReviewDialog extends ExtendedDialog {
+
+    // Closing the dialog does not cancel the run: the addresses that needed no review are added in any case.
+    protected static final String[] BUTTON_TEXTS = new String[] {tr("Apply accepted"), tr("Apply none of these")};
+    protected static final String[] BUTTON_ICONS = new String[] {"ok", "cancel"};
+
+    protected static final String OSM_URL_PREFIX = "https://www.openstreetmap.org/";
+
+    protected final List<AddressReviewItem> items;
+
+    public AddressReviewDialog(List<AddressReviewItem> items) {
+        super(MainApplication.getMainFrame(), tr("Review Addresses"), BUTTON_TEXTS, true);
+
+        this.items = items;
+
+        setButtonIcons(BUTTON_ICONS);
+        setMinimumSize(new Dimension(900, 400));
+        setLocationRelativeTo(null);
+
+        JPanel contentPane = new JPanel(new BorderLayout());
+        contentPane.setBorder(BorderFactory.createEmptyBorder(0, 10, 0, 10));
+        setContent(contentPane, false);
+
+        JLabel descriptionLabel = new JLabel(trn(
+                "<html>The following object needs a decision. Tick it to add the proposed address anyway. " +
+                        "If its address type is unknown, it can only be ticked once a type is chosen. " +
+                        "The addresses of all other objects are added in any case.</html>",
+                "<html>The following {0} objects need a decision. Tick those that should get the proposed address anyway. " +
+                        "Objects whose address type is unknown can only be ticked once a type is chosen; the type is " +
+                        "then used for all objects in the same street. " +
+                        "The addresses of all other objects are added in any case.</html>",
+                items.size(), items.size()));
+        descriptionLabel.setBorder(BorderFactory.createEmptyBorder(0, 0, 10, 0));
+        contentPane.add(descriptionLabel, BorderLayout.NORTH);
+
+        ReviewTableModel model = new ReviewTableModel(items);
+        JTable table = new JTable(model);
+        table.setFillsViewportHeight(true);
+        table.getColumnModel().getColumn(0).setMaxWidth(60);
+        table.getColumnModel().getColumn(3).setCellEditor(new DefaultCellEditor(
+                new JComboBox<>(AddressTypeDialog.ALLOWED_ADDRESS_TYPES.toArray(new String[0]))));
+        contentPane.add(new JScrollPane(table), BorderLayout.CENTER);
+
+        JButton acceptAllButton = new JButton(tr("Accept all"));
+        acceptAllButton.setToolTipText(tr("Tick all objects whose address type is known"));
+        acceptAllButton.addActionListener(e -> model.setAllAccepted(true));
+
+        JButton rejectAllButton = new JButton(tr("Reject all"));
+        rejectAllButton.setToolTipText(tr("Untick all objects"));
+        rejectAllButton.addActionListener(e -> model.setAllAccepted(false));
+
+        JPanel selectionPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 0, 5));
+        selectionPanel.add(acceptAllButton);
+        selectionPanel.add(rejectAllButton);
+        contentPane.add(selectionPanel, BorderLayout.SOUTH);
+    }
+
+    /**
+     * Returns the items that were accepted, provided the dialog was confirmed.
+     *
+     * @return the accepted items, or an empty list if the dialog was canceled
+     */
+    public List<AddressReviewItem> getAcceptedItems() {
+        List<AddressReviewItem> accepted = new ArrayList<>();
+
+        // "Apply accepted" was not clicked
+        if (getValue() != 1) {
+            return accepted;
+        }
+
+        for (AddressReviewItem item : items) {
+            if (item.isApplicable()) {
+                accepted.add(item);
+            }
+        }
+
+        return accepted;
+    }
+
+    protected static String formatDuplicates(List<String> duplicateUrls) {
+        StringBuilder duplicates = new StringBuilder();
+
+        for (String duplicateUrl : duplicateUrls) {
+            if (duplicates.length() > 0) {
+                duplicates.append(", ");
+            }
+
+            duplicates.append(duplicateUrl.startsWith(OSM_URL_PREFIX)
+                    ? duplicateUrl.substring(OSM_URL_PREFIX.length())
+                    : duplicateUrl);
+        }
+
+        return duplicates.toString();
+    }
+
+    protected static class ReviewTableModel extends AbstractTableModel {
+        private static final long serialVersionUID = 1L;
+
+        protected static final String[] COLUMN_NAMES = new String[] {
+            tr("Accept"), tr("Object"), tr("Proposed address"), tr("Address type"), tr("Duplicates"), tr("Reason")};
+
+        protected final List<AddressReviewItem> items;
+
+        // Rows whose address type could not be determined automatically and has to be chosen here.
+        protected final Set<AddressReviewItem> undeterminedAddressTypes = new HashSet<>();
+
+        ReviewTableModel(List<AddressReviewItem> items) {
+            this.items = items;
+
+            for (AddressReviewItem item : items) {
+                if (item.getAddress() != null && item.getAddress().getAddressType() == null) {
+                    undeterminedAddressTypes.add(item);
+                }
+            }
+        }
+
+        @Override
+        public int getRowCount() {
+            return items.size();
+        }
+
+        @Override
+        public int getColumnCount() {
+            return COLUMN_NAMES.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return COLUMN_NAMES[column];
+        }
+
+        @Override
+        public Class<?> getColumnClass(int column) {
+            return column == 0 ? Boolean.class : String.class;
+        }
+
+        @Override
+        public boolean isCellEditable(int row, int column) {
+            AddressReviewItem item = items.get(row);
+
+            if (column == 0) {
+                return item.isAcceptable();
+            }
+
+            return column == 3 && undeterminedAddressTypes.contains(item);
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            AddressReviewItem item = items.get(row);
+            ResolvedAddress address = item.getAddress();
+
+            switch (column) {
+                case 0:
+                    return item.isAccepted();
+                case 1:
+                    return item.getPrimitive().getDisplayName(DefaultNameFormatter.getInstance());
+                case 2:
+                    return address == null ? "" : address.getDisplayString();
+                case 3:
+                    return address == null || address.getAddressType() == null ? "" : address.getAddressType();
+                case 4:
+                    return formatDuplicates(item.getDuplicateUrls());
+                case 5:
+                    return item.getReason();
+                default:
+                    return null;
+            }
+        }
+
+        @Override
+        public void setValueAt(Object value, int row, int column) {
+            AddressReviewItem item = items.get(row);
+
+            if (column == 0) {
+                item.setAccepted(Boolean.TRUE.equals(value));
+                fireTableCellUpdated(row, column);
+            } else if (column == 3 && AddressTypeDialog.ALLOWED_ADDRESS_TYPES.contains(value)) {
+                setAddressType(item.getAddress(), (String) value);
+            }
+        }
+
+        /**
+         * Sets the address type of all rows in the same street (or place), postcode and municipality and remembers
+         * it like the address type dialog of a single object does.
+         */
+        protected void setAddressType(ResolvedAddress address, String addressType) {
+            final String streetOrPlace = address.getStreetOrPlace();
+            final String postcode = address.getPostcode();
+            final String municipality = address.getMunicipality();
+
+            for (AddressReviewItem item : undeterminedAddressTypes) {
+                ResolvedAddress other = item.getAddress();
+
+                if (Objects.equals(streetOrPlace, other.getStreetOrPlace()) && Objects.equals(postcode, other.getPostcode())
+                        && Objects.equals(municipality, other.getMunicipality())) {
+                    other.setAddressType(addressType);
+
+                    // Choosing an address type implies accepting the address.
+                    item.setAccepted(true);
+                }
+            }
+
+            AustriaAddressHelperAction.rememberAddressType(streetOrPlace, postcode, municipality, addressType);
+            fireTableDataChanged();
+        }
+
+        protected void setAllAccepted(boolean accepted) {
+            for (AddressReviewItem item : items) {
+                item.setAccepted(accepted);
+            }
+
+            fireTableDataChanged();
+        }
+    }
+}
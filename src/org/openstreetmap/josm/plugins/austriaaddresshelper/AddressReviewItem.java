@@ -0,0 +1,80 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.austriaaddresshelper;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+
+/**
+ * An object of a bulk run that needs a decision by the user before its address is applied, e.g. because the address
+ * already exists in OpenStreetMap or because the duplicate check failed.
+ */
+public class AddressReviewItem {
+    protected final OsmPrimitive primitive;
+    protected final ResolvedAddress address;
+    protected final List<String> duplicateUrls;
+    protected final String reason;
+    protected boolean accepted;
+
+    public AddressReviewItem(OsmPrimitive primitive, ResolvedAddress address, List<String> duplicateUrls, String reason) {
+        this.primitive = primitive;
+        this.address = address;
+        this.duplicateUrls = duplicateUrls == null ? Collections.emptyList() : duplicateUrls;
+        this.reason = reason;
+    }
+
+    /**
+     * Creates a review item for an object for which no address could be resolved at all.
+     *
+     * @param primitive the object
+     * @param reason why no address could be resolved
+     * @return a review item that cannot be accepted
+     */
+    public static AddressReviewItem failed(OsmPrimitive primitive, String reason) {
+        return new AddressReviewItem(primitive, null, null, reason);
+    }
+
+    /**
+     * Whether this item has an address that could be applied once the user accepts it. An address whose type is not
+     * known yet cannot be accepted until the type has been chosen.
+     *
+     * @return true if the item can be accepted
+     */
+    public boolean isAcceptable() {
+        return address != null && address.getAddressType() != null;
+    }
+
+    /**
+     * Whether this item was accepted and has everything needed to apply the address.
+     *
+     * @return true if the address of this item should be applied
+     */
+    public boolean isApplicable() {
+        return accepted && isAcceptable();
+    }
+
+    public OsmPrimitive getPrimitive() {
+        return primitive;
+    }
+
+    public ResolvedAddress getAddress() {
+        return address;
+    }
+
+    public List<String> getDuplicateUrls() {
+        return duplicateUrls;
+    }
+
+    public String getReason() {
+        return reason;
+    }
+
+    public boolean isAccepted() {
+        return accepted;
+    }
+
+    public void setAccepted(boolean accepted) {
+        this.accepted = accepted && isAcceptable();
+    }
+}
@@ -0,0 +1,91 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.austriaaddresshelper;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.SortedMap;
+
+/**
+ * Immutable tags of one address: a view of the tag template shared by all addresses of the same street (see
+ * {@link AddressDictionary#getTagTemplate}) plus the house number and the address date of this address.
+ */
+public final class AddressTagMap extends AbstractMap<String, String> {
+    static final String HOUSE_NUMBER_KEY = "addr:housenumber";
+    static final String ADDRESS_DATE_KEY = "at_bev:addr_date";
+
+    private final SortedMap<String, String> template;
+    private final String houseNumber;
+    private final String addressDate;
+
+    public AddressTagMap(SortedMap<String, String> template, String houseNumber, String addressDate) {
+        this.template = template;
+        this.houseNumber = houseNumber;
+        this.addressDate = addressDate;
+    }
+
+    @Override
+    public String get(Object key) {
+        if (HOUSE_NUMBER_KEY.equals(key)) {
+            return houseNumber;
+        } else if (ADDRESS_DATE_KEY.equals(key)) {
+            return addressDate;
+        }
+
+        return template.get(key);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return HOUSE_NUMBER_KEY.equals(key) || ADDRESS_DATE_KEY.equals(key) || template.containsKey(key);
+    }
+
+    @Override
+    public int size() {
+        return template.size() + 2;
+    }
+
+    @Override
+    public Set<Map.Entry<String, String>> entrySet() {
+        return new AbstractSet<Map.Entry<String, String>>() {
+            @Override
+            public int size() {
+                return AddressTagMap.this.size();
+            }
+
+            @Override
+            public Iterator<Map.Entry<String, String>> iterator() {
+                return new EntryIterator();
+            }
+        };
+    }
+
+    private final class EntryIterator implements Iterator<Map.Entry<String, String>> {
+        private final Iterator<Map.Entry<String, String>> templateIterator = template.entrySet().iterator();
+        private int ownEntriesReturned;
+
+        @Override
+        public boolean hasNext() {
+            return templateIterator.hasNext() || ownEntriesReturned < 2;
+        }
+
+        @Override
+        public Map.Entry<String, String> next() {
+            if (templateIterator.hasNext()) {
+                return templateIterator.next();
+            }
+
+            switch (ownEntriesReturned++) {
+                case 0:
+                    return new AbstractMap.SimpleImmutableEntry<>(HOUSE_NUMBER_KEY, houseNumber);
+                case 1:
+                    return new AbstractMap.SimpleImmutableEntry<>(ADDRESS_DATE_KEY, addressDate);
+                default:
+                    throw new NoSuchElementException();
+            }
+        }
+    }
+}
@@ -19,7 +19,6 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.TreeMap;
 
 import jakarta.json.Json;
 import jakarta.json.JsonArray;
@@ -38,6 +37,7 @@ import org.openstreetmap.josm.data.coor.conversion.DecimalDegreesCoordinateForma
 import org.openstreetmap.josm.data.osm.OsmPrimitive;
 import org.openstreetmap.josm.data.preferences.BooleanProperty;
 import org.openstreetmap.josm.data.preferences.StringProperty;
+import org.openstreetmap.josm.gui.ExtendedDialog;
 import org.openstreetmap.josm.gui.MainApplication;
 import org.openstreetmap.josm.gui.Notification;
 import org.openstreetmap.josm.io.OverpassDownloadReader;
@@ -75,14 +75,43 @@ public class AustriaAddressHelperAction extends JosmAction {
         // Get the currently selected object
         final Collection<OsmPrimitive> sel = MainApplication.getLayerManager().getEditDataSet().getSelected();
 
-        if (sel.size() != 1) {
-            new Notification(tr("Austria Address Helper<br>Please select exactly one object."))
+        if (sel.isEmpty()) {
+            new Notification(tr("Austria Address Helper<br>Please select at least one object."))
                     .setIcon(JOptionPane.ERROR_MESSAGE)
                     .show();
 
             return;
         }
 
+        // Several objects are fetched in the background and reviewed in one pass at the end instead of asking the
+        // user for every single object.
+        if (sel.size() > 1) {
+            if (BulkAddressTask.isRunning()) {
+                new Notification(tr("Austria Address Helper<br>An address run is in progress. Wait until it is finished."))
+                        .setIcon(JOptionPane.WARNING_MESSAGE)
+                        .show();
+
+                return;
+            }
+
+            // A new run replaces the journal, so an interrupted run has to be resumed or discarded first.
+            if (BatchJournal.exists()) {
+                switch (askResumeOrDiscard()) {
+                    case 1:
+                        ResumeBulkAddressAction.resume();
+                        return;
+                    case 2:
+                        BatchJournal.delete();
+                        break;
+                    default:
+                        return;
+                }
+            }
+
+            MainApplication.worker.submit(new BulkAddressTask(MainApplication.getLayerManager().getEditLayer(), sel));
+            return;
+        }
+
         final List<Command> commands = new ArrayList<>();
         for (OsmPrimitive selectedObject : sel) {
             Map<String, String> newObject = loadAddress(selectedObject);
@@ -95,69 +124,30 @@ public class AustriaAddressHelperAction extends JosmAction {
         }
     }
     
-    public static Map<String, String> loadAddress(OsmPrimitive selectedObject) {
-        LatLon center = selectedObject.getBBox().getCenter();
+    /**
+     * Asks what to do with an interrupted run before a new one is started.
+     *
+     * @return 1 to resume the interrupted run, 2 to discard it and start the new one, anything else to cancel
+     */
+    protected static int askResumeOrDiscard() {
+        final ExtendedDialog dialog = new ExtendedDialog(MainApplication.getMainFrame(), tr("Interrupted Address Run"),
+                new String[] {tr("Resume"), tr("Discard"), tr("Cancel")}, true);
+        dialog.setButtonIcons("ok", "dialogs/delete", "cancel");
+        dialog.setContent(tr("<html>A previous address run was interrupted. Starting a new run discards it.<br />" +
+                "Do you want to resume the interrupted run instead?</html>"));
+
+        return dialog.showDialog().getValue();
+    }
 
+    public static Map<String, String> loadAddress(OsmPrimitive selectedObject) {
         try {
-            URL url = URI.create(baseUrl.get()
-                    + "?lat=" + URLEncoder.encode(DecimalDegreesCoordinateFormat.INSTANCE.latToString(center), "UTF-8")
-                    + "&lon=" + URLEncoder.encode(DecimalDegreesCoordinateFormat.INSTANCE.lonToString(center), "UTF-8")
-                    + "&distance=30"
-                    + "&limit=1"
-                    + "&epsg=4326"
-            ).toURL();
-
-            final JsonObject json;
-            try (BufferedReader in = HttpClient.create(url)
-                    .setReasonForRequest("JOSM Plugin Austria Address Helper")
-                    .setHeader("User-Agent", "JOSM Plugin Austria Address Helper")
-                    .connect()
-                    .getContentReader();
-                 JsonReader reader = Json.createReader(in)) {
-                json = reader.readObject();
-            }
-
-            final JsonArray addressItems = json.getJsonArray("results");
-            if (!addressItems.isEmpty()) {
-                final JsonObject firstAddress = addressItems.getJsonObject(0);
-
-                String country = "AT";
-                String municipality = firstAddress.getString("municipality");
-                String locality = firstAddress.getString("locality");
-                String postcode = firstAddress.getString("postcode");
-                String streetOrPlace;
-                String houseNumber = firstAddress.getString("house_number");
-
-                final Map<String, String> newObject = new TreeMap<>();
-
-                newObject.put("addr:country", country);
-                newObject.put("addr:city", municipality);
-
-                // Some municipalities have a specific combination of postcode and street multiple times in several
-                // localities. For example, the street "Feldgasse" in the municipality of Großebersdorf with the
-                // the postcode 2203 exists four times, namely in the localities Eibesbrunn, Großebersdorf,
-                // Manhartsbrunn, and Putzing. If this is the case, we need to add the "addr:suburb" tag to the value of
-                // the locality.
-                if (firstAddress.getBoolean("municipality_has_ambiguous_addresses")) {
-                    newObject.put("addr:suburb", locality);
-                }
-
-                newObject.put("addr:postcode", postcode);
+            final ResolvedAddress address = fetchAddress(selectedObject);
 
-                streetOrPlace = firstAddress.getString("street");
-
-                // First remove addr:street and addr:place tags.
-                newObject.remove("addr:street");
-                newObject.remove("addr:place");
-
-                // Decide whether the address type is 'street' or 'place'.
-                if ("place".equals(firstAddress.getString("address_type"))) {
-                    newObject.put("addr:place", streetOrPlace);
-                } else if ("street".equals(firstAddress.getString("address_type"))) {
-                    newObject.put("addr:street", streetOrPlace);
-                } else {
+            if (address != null) {
+                if (address.getAddressType() == null) {
                     // Get remembered choice or ask the user.
-                    String addressType = getRememberedAddressTypeOrAsk(streetOrPlace, houseNumber, postcode, municipality);
+                    String addressType = getRememberedAddressTypeOrAsk(address.getStreetOrPlace(),
+                            address.getHouseNumber(), address.getPostcode(), address.getMunicipality());
 
                     // If the address type is neither "street" nor "place", show a warning and return.
                     if (addressType == null || !AddressTypeDialog.ALLOWED_ADDRESS_TYPES.contains(addressType)) {
@@ -171,15 +161,15 @@ public class AustriaAddressHelperAction extends JosmAction {
 
                         return Collections.emptyMap();
                     } else {
-                        newObject.put("addr:" + addressType, streetOrPlace);
+                        address.setAddressType(addressType);
                     }
                 }
 
-                newObject.put("addr:housenumber", houseNumber);
+                final Map<String, String> newObject = address.getTags();
 
                 // Search for duplicates.
                 List<String> existingObjectsWithThatAddress = Boolean.TRUE.equals(checkDuplicates.get())
-                        ? getUrlsOfObjectsWithThatAddress(newObject, center)
+                        ? getUrlsOfObjectsWithThatAddress(newObject, address.getCenter())
                         : Collections.emptyList();
 
                 int dialogAnswer = -2;
@@ -195,9 +185,9 @@ public class AustriaAddressHelperAction extends JosmAction {
 
                     for (String duplicateUrl: existingObjectsWithThatAddress) {
                         urlList.append("<li><a href=\"");
-                        urlList.append(encodeHTML(duplicateUrl));
+                        appendEncodedHTML(urlList, duplicateUrl);
                         urlList.append("\">");
-                        urlList.append(encodeHTML(duplicateUrl));
+                        appendEncodedHTML(urlList, duplicateUrl);
                         urlList.append("</a></li>");
                     }
 
@@ -223,27 +213,22 @@ public class AustriaAddressHelperAction extends JosmAction {
 
                 // Either no dialog was shown or "yes" was selected.
                 if (dialogAnswer == -2 || dialogAnswer == JOptionPane.YES_OPTION) {
-                    // Set the date of the data source.
-                    final String addressDate = json.getString("address_date");
-                    newObject.put("at_bev:addr_date", addressDate);
-
-                    // Set or add the address source.
-                    final String copyright = "Adressdaten: " + json.getString("copyright");
-
                     // Add the data source to the changeset (not to the object because that can be changed easily).
-                    MainApplication.getLayerManager().getEditDataSet().addChangeSetTag("source", copyright);
-
-                    // Get the distance between the building center and the address coordinates.
-                    final double distanceToAddressCoordinates = firstAddress.getJsonNumber("distance").doubleValue();
-
-                    new Notification(
-                            "<strong>" + tr("Austria Address Helper") + "</strong><br />" +
-                                    tr("Successfully added address to selected object:") + "<br />" +
-                                    encodeHTML(streetOrPlace) + " " + encodeHTML(houseNumber) + ", " + encodeHTML(postcode) +
-                                    " " + encodeHTML(municipality) + " (" + encodeHTML(country) + ")<br/>" +
-                                    "<strong>" + tr("Distance between building center and address coordinates:") + "</strong> " +
-                                    new DecimalFormat("#.##").format(distanceToAddressCoordinates) + " " + tr("meters")
-                    )
+                    MainApplication.getLayerManager().getEditDataSet().addChangeSetTag("source", address.getCopyright());
+
+                    StringBuilder message = new StringBuilder(256);
+                    message.append("<strong>").append(tr("Austria Address Helper")).append("</strong><br />")
+                            .append(tr("Successfully added address to selected object:")).append("<br />");
+                    appendEncodedHTML(message, address.getStreetOrPlace()).append(' ');
+                    appendEncodedHTML(message, address.getHouseNumber()).append(", ");
+                    appendEncodedHTML(message, address.getPostcode()).append(' ');
+                    appendEncodedHTML(message, address.getMunicipality()).append(" (");
+                    appendEncodedHTML(message, ResolvedAddress.COUNTRY).append(")<br/>")
+                            .append("<strong>").append(tr("Distance between building center and address coordinates:"))
+                            .append("</strong> ").append(new DecimalFormat("#.##").format(address.getDistance()))
+                            .append(' ').append(tr("meters"));
+
+                    new Notification(message.toString())
                             .setIcon(JOptionPane.INFORMATION_MESSAGE)
                             .setDuration(2500)
                             .show();
@@ -273,17 +258,130 @@ public class AustriaAddressHelperAction extends JosmAction {
         return Collections.emptyMap();
     }
 
+    /**
+     * Queries the reverse geocoder for the address of an object without asking the user anything.
+     *
+     * @param selectedObject the object to fetch the address for
+     * @return the address, or null if no address was found. Its address type is null if it could neither be
+     * determined automatically nor from a remembered choice.
+     * @throws IOException if the reverse geocoder could not be queried
+     */
+    public static ResolvedAddress fetchAddress(OsmPrimitive selectedObject) throws IOException {
+        LatLon center = selectedObject.getBBox().getCenter();
+
+        URL url = URI.create(baseUrl.get()
+                + "?lat=" + URLEncoder.encode(DecimalDegreesCoordinateFormat.INSTANCE.latToString(center), "UTF-8")
+                + "&lon=" + URLEncoder.encode(DecimalDegreesCoordinateFormat.INSTANCE.lonToString(center), "UTF-8")
+                + "&distance=30"
+                + "&limit=1"
+                + "&epsg=4326"
+        ).toURL();
+
+        final JsonObject json;
+        try (BufferedReader in = HttpClient.create(url)
+                .setReasonForRequest("JOSM Plugin Austria Address Helper")
+                .setHeader("User-Agent", "JOSM Plugin Austria Address Helper")
+                .connect()
+                .getContentReader();
+             JsonReader reader = Json.createReader(in)) {
+            json = reader.readObject();
+        }
+
+        final JsonArray addressItems = json.getJsonArray("results");
+        if (addressItems.isEmpty()) {
+            return null;
+        }
+
+        final JsonObject firstAddress = addressItems.getJsonObject(0);
+
+        String municipality = firstAddress.getString("municipality");
+        String postcode = firstAddress.getString("postcode");
+        String streetOrPlace = firstAddress.getString("street");
+
+        // Whether addr:suburb is needed is a fact of the municipality and postcode, so prefer the local table.
+        final MunicipalityTable.Entry municipalityEntry = MunicipalityTable.lookup(municipality, postcode);
+        final boolean municipalityHasAmbiguousAddresses = municipalityEntry != null
+                ? municipalityEntry.hasAmbiguousAddresses()
+                : firstAddress.getBoolean("municipality_has_ambiguous_addresses");
+
+        // Decide whether the address type is 'street' or 'place'.
+        String addressType = firstAddress.getString("address_type");
+        final boolean addressTypeFromRegister = AddressTypeDialog.ALLOWED_ADDRESS_TYPES.contains(addressType);
+        if (!addressTypeFromRegister) {
+            addressType = getRememberedChoice(streetOrPlace, postcode, municipality);
+        }
+
+        final ResolvedAddress address = new ResolvedAddress(
+                center,
+                municipality,
+                firstAddress.getString("locality"),
+                postcode,
+                streetOrPlace,
+                firstAddress.getString("house_number"),
+                municipalityHasAmbiguousAddresses,
+                addressType,
+                json.getString("address_date"),
+                "Adressdaten: " + json.getString("copyright"),
+                firstAddress.getJsonNumber("distance").doubleValue()
+        );
+
+        // Only remember what the address register says, not what the user chose, to validate other addresses with.
+        if (addressTypeFromRegister) {
+            AddressReferenceData.learn(address);
+        }
+
+        return address;
+    }
+
     protected static List<String> getUrlsOfObjectsWithThatAddress(Map<String, String> newObject, LatLon position) {
+        try {
+            return queryUrlsOfObjectsWithThatAddress(newObject, position);
+        } catch (IOException e) {
+            Logging.trace(e);
+            new Notification(
+                    "<strong>" + tr("Austria Address Helper") + "</strong>" +
+                            tr("An unexpected exception occurred while checking for address duplicates:") + e.toString()
+            )
+            .setIcon(JOptionPane.ERROR_MESSAGE)
+            .show();
+
+            return null;
+        }
+    }
+
+    /**
+     * Queries the Overpass API for objects that already have the given address.
+     *
+     * @param newObject the address tags
+     * @param position the position around which to search
+     * @return the URLs of the objects that already have that address
+     * @throws IOException if the Overpass API could not be queried
+     */
+    protected static List<String> queryUrlsOfObjectsWithThatAddress(Map<String, String> newObject, LatLon position)
+            throws IOException {
         List<String> urls = new ArrayList<>();
 
         final String header = "[out:json][timeout:10]";
 
-        // Just a rough bounding box.
-        String bbox = "[bbox:" +
-                (position.getY() - 0.075) + "," +
-                (position.getX() - 0.1) + "," +
-                (position.getY() + 0.075) + "," +
-                (position.getX() + 0.1) + "]";
+        final MunicipalityTable.Entry municipalityEntry =
+                MunicipalityTable.lookup(newObject.get("addr:city"), newObject.get("addr:postcode"));
+        final String bbox;
+
+        if (municipalityEntry != null) {
+            // Duplicates have the same municipality and postcode, so their extent is all that needs to be searched.
+            bbox = "[bbox:" +
+                    (municipalityEntry.getMinLat() - 0.001) + "," +
+                    (municipalityEntry.getMinLon() - 0.001) + "," +
+                    (municipalityEntry.getMaxLat() + 0.001) + "," +
+                    (municipalityEntry.getMaxLon() + 0.001) + "]";
+        } else {
+            // Just a rough bounding box.
+            bbox = "[bbox:" +
+                    (position.getY() - 0.075) + "," +
+                    (position.getX() - 0.1) + "," +
+                    (position.getY() + 0.075) + "," +
+                    (position.getX() + 0.1) + "]";
+        }
 
         StringBuilder filterLineBuilder = new StringBuilder();
 
@@ -335,56 +433,35 @@ public class AustriaAddressHelperAction extends JosmAction {
         // Build the whole Overpass API query.
         String query = header + bbox + ";" + "(" + filter + ");" + footer;
 
-        boolean noExceptionThrown = false;
-        Exception exception = null;
-
-        try {
-            URL url = URI.create(OverpassDownloadReader.OVERPASS_SERVER.get() + "interpreter"
-                    + "?data=" + URLEncoder.encode(query, "UTF-8")
-            ).toURL();
-
-            final JsonObject json;
-
-            try (BufferedReader in = HttpClient.create(url)
-                    .setReasonForRequest("JOSM Plugin Austria Address Helper")
-                    .setHeader("User-Agent", "JOSM Plugin Austria Address Helper")
-                    .connect()
-                    .getContentReader();
-                JsonReader reader = Json.createReader(in)) {
-                json = reader.readObject();
-            }
+        URL url = URI.create(OverpassDownloadReader.OVERPASS_SERVER.get() + "interpreter"
+                + "?data=" + URLEncoder.encode(query, "UTF-8")
+        ).toURL();
 
-            final JsonArray items = json.getJsonArray("elements");
+        final JsonObject json;
 
-            if (!items.isEmpty()) {
-                for (JsonValue item: items) {
-                    JsonObject itemObject = item.asJsonObject();
+        try (BufferedReader in = HttpClient.create(url)
+                .setReasonForRequest("JOSM Plugin Austria Address Helper")
+                .setHeader("User-Agent", "JOSM Plugin Austria Address Helper")
+                .connect()
+                .getContentReader();
+            JsonReader reader = Json.createReader(in)) {
+            json = reader.readObject();
+        }
 
-                    String type = itemObject.getString("type", null);
-                    int osmId = itemObject.getInt("id", 0);
-                    if (type == null || osmId == 0) {
-                        urls.add("<Could not generate URL>");
-                    } else {
-                        urls.add("https://www.openstreetmap.org/" + URLEncoder.encode(type, "UTF-8") +
-                                "/" + URLEncoder.encode(Integer.toString(osmId), "UTF-8"));
-                    }
-                }
-            }
+        final JsonArray items = json.getJsonArray("elements");
 
-            noExceptionThrown = true;
-        } catch (IOException e) {
-            Logging.trace(e);
-            exception = e;
-        } finally {
-            if (!noExceptionThrown && exception != null) {
-                new Notification(
-                        "<strong>" + tr("Austria Address Helper") + "</strong>" +
-                                tr("An unexpected exception occurred while checking for address duplicates:") + exception.toString()
-                )
-                .setIcon(JOptionPane.ERROR_MESSAGE)
-                .show();
+        if (!items.isEmpty()) {
+            for (JsonValue item: items) {
+                JsonObject itemObject = item.asJsonObject();
 
-                urls = null;
+                String type = itemObject.getString("type", null);
+                int osmId = itemObject.getInt("id", 0);
+                if (type == null || osmId == 0) {
+                    urls.add("<Could not generate URL>");
+                } else {
+                    urls.add("https://www.openstreetmap.org/" + URLEncoder.encode(type, "UTF-8") +
+                            "/" + URLEncoder.encode(Integer.toString(osmId), "UTF-8"));
+                }
             }
         }
 
@@ -421,6 +498,19 @@ public class AustriaAddressHelperAction extends JosmAction {
         return addressType;
     }
 
+    /**
+     * Remembers the address type of a street or place for this session, e.g. when it was chosen in the review of a
+     * bulk run.
+     */
+    protected static void rememberAddressType(String streetOrPlace, String postcode, String city, String addressType) {
+        HashMap<String, String> place = new HashMap<>();
+        place.put("place_name", streetOrPlace);
+        place.put("postcode", postcode);
+        place.put("city", city);
+
+        rememberedAddressTypeChoices.put(place, addressType);
+    }
+
     @Override
     protected void updateEnabledState() {
         if (getLayerManager().getEditDataSet() == null) {
@@ -432,21 +522,24 @@ public class AustriaAddressHelperAction extends JosmAction {
 
     @Override
     protected void updateEnabledState(final Collection<? extends OsmPrimitive> selection) {
-        // Enable it only if exactly one object is selected.
-        setEnabled(selection != null && selection.size() == 1);
+        // Enable it only if at least one object is selected.
+        setEnabled(selection != null && !selection.isEmpty());
     }
 
-    private static String encodeHTML(String s) {
-        StringBuilder out = new StringBuilder();
+    /**
+     * Appends the given string to the builder, encoding all characters that are not safe in HTML, without creating
+     * any intermediate strings.
+     */
+    private static StringBuilder appendEncodedHTML(StringBuilder out, String s) {
         for (int i = 0; i < s.length(); i++) {
             char c = s.charAt(i);
             if (c > 127 || c == '"' || c == '<' || c == '>') {
-                out.append("&#" + (int) c + ";");
+                out.append("&#").append((int) c).append(';');
             } else {
                 out.append(c);
             }
         }
-        return out.toString();
+        return out;
     }
 
     private static String getRememberedChoice(String placeName, String postcode, String city) {
@@ -1,6 +1,7 @@
 // License: GPL. For details, see LICENSE file.
 package org.openstreetmap.josm.plugins.austriaaddresshelper;
 
+import org.openstreetmap.josm.data.validation.OsmValidator;
 import org.openstreetmap.josm.gui.MainApplication;
 import org.openstreetmap.josm.gui.MainMenu;
 import org.openstreetmap.josm.gui.MapFrame;
@@ -11,6 +12,7 @@ import org.openstreetmap.josm.plugins.PluginInformation;
 public class AustriaAddressHelperPlugin extends Plugin {
 
     AustriaAddressHelperAction austriaAddressHelperAction;
+    ResumeBulkAddressAction resumeBulkAddressAction;
 
     /**
      * Will be invoked by JOSM to bootstrap the plugin
@@ -23,6 +25,12 @@ public class AustriaAddressHelperPlugin extends Plugin {
 
         austriaAddressHelperAction = new AustriaAddressHelperAction();
         MainMenu.add(MainApplication.getMenu().toolsMenu, austriaAddressHelperAction);
+
+        resumeBulkAddressAction = new ResumeBulkAddressAction();
+        MainMenu.add(MainApplication.getMenu().toolsMenu, resumeBulkAddressAction);
+
+        OsmValidator.addTest(AddressConsistencyTest.class);
+        MainApplication.getLayerManager().addLayerChangeListener(new AddressIndex.LayerListener());
     }
 
     @Override
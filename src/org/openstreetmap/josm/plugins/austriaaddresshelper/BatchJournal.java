@@ -0,0 +1,415 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.austriaaddresshelper;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+
+import jakarta.json.Json;
+import jakarta.json.JsonArrayBuilder;
+import jakarta.json.JsonException;
+import jakarta.json.JsonObject;
+import jakarta.json.JsonObjectBuilder;
+import jakarta.json.JsonReader;
+import jakarta.json.JsonString;
+import jakarta.json.JsonValue;
+
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.OsmPrimitiveType;
+import org.openstreetmap.josm.data.osm.SimplePrimitiveId;
+import org.openstreetmap.josm.gui.layer.OsmDataLayer;
+import org.openstreetmap.josm.spi.preferences.Config;
+import org.openstreetmap.josm.tools.Logging;
+
+/**
+ * Append-only journal of a bulk run, so that a run that was interrupted can be resumed without querying the reverse
+ * geocoder again for the objects that were already resolved. Every line is one JSON record: the queue of objects when
+ * the run starts, then one record per resolved object or review item.
+ * <p>
+ * Object IDs alone do not identify the objects of a run once JOSM was restarted: the layer may have been loaded from
+ * another file and new objects get other (negative) IDs. Hence the queue also records the layer, the JOSM session and
+ * the center of every object, and objects that do not match any more are not resumed.
+ */
+public class BatchJournal implements Closeable {
+    private static final String TYPE_QUEUE = "queue";
+    private static final String TYPE_RESOLVED = "resolved";
+    private static final String TYPE_REVIEW = "review";
+
+    // Identifies this JOSM session, IDs of new objects are only valid within the session that created them.
+    private static final String SESSION_ID = UUID.randomUUID().toString();
+
+    // An object whose center moved by more than this (in degrees, about 10 cm) is considered changed.
+    private static final double CENTER_TOLERANCE = 1e-6;
+
+    private BufferedWriter writer;
+
+    private BatchJournal(boolean append) throws IOException {
+        File file = getFile();
+        File directory = file.getParentFile();
+
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Could not create " + directory);
+        }
+
+        writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, append ? StandardOpenOption.APPEND : StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    /**
+     * Starts a new journal for a run, replacing any previous one.
+     *
+     * @param layer the layer of the objects
+     * @param queue the objects of the run
+     * @return the journal
+     * @throws IOException if the journal could not be written
+     */
+    public static BatchJournal start(OsmDataLayer layer, Collection<OsmPrimitive> queue) throws IOException {
+        BatchJournal journal = new BatchJournal(false);
+        JsonArrayBuilder objects = Json.createArrayBuilder();
+
+        for (OsmPrimitive primitive : queue) {
+            LatLon center = primitive.getBBox().getCenter();
+
+            objects.add(Json.createObjectBuilder()
+                    .add("id", getId(primitive))
+                    .add("lat", center.lat())
+                    .add("lon", center.lon()));
+        }
+
+        JsonObjectBuilder record = Json.createObjectBuilder()
+                .add("type", TYPE_QUEUE)
+                .add("session", SESSION_ID)
+                .add("layer", layer.getName())
+                .add("objects", objects);
+
+        if (layer.getAssociatedFile() == null) {
+            record.addNull("file");
+        } else {
+            record.add("file", layer.getAssociatedFile().getPath());
+        }
+
+        journal.write(record);
+        return journal;
+    }
+
+    /**
+     * Continues the existing journal of a resumed run.
+     *
+     * @return the journal
+     * @throws IOException if the journal could not be opened
+     */
+    public static BatchJournal resume() throws IOException {
+        return new BatchJournal(true);
+    }
+
+    public static File getFile() {
+        return new File(new File(Config.getDirs().getUserDataDirectory(true), "austriaaddresshelper"),
+                "batch-journal.jsonl");
+    }
+
+    public static boolean exists() {
+        return getFile().isFile();
+    }
+
+    /**
+     * Discards the journal once its run is finished.
+     */
+    public static void delete() {
+        try {
+            Files.deleteIfExists(getFile().toPath());
+        } catch (IOException e) {
+            Logging.warn(e);
+        }
+    }
+
+    public void writeResolved(OsmPrimitive primitive, ResolvedAddress address) {
+        write(Json.createObjectBuilder()
+                .add("type", TYPE_RESOLVED)
+                .add("id", getId(primitive))
+                .add("address", toJson(address)));
+    }
+
+    public void writeReview(AddressReviewItem item) {
+        JsonArrayBuilder duplicateUrls = Json.createArrayBuilder();
+
+        for (String duplicateUrl : item.getDuplicateUrls()) {
+            duplicateUrls.add(duplicateUrl);
+        }
+
+        JsonObjectBuilder record = Json.createObjectBuilder()
+                .add("type", TYPE_REVIEW)
+                .add("id", getId(item.getPrimitive()))
+                .add("duplicates", duplicateUrls)
+                .add("reason", item.getReason());
+
+        if (item.getAddress() != null) {
+            record.add("address", toJson(item.getAddress()));
+        }
+
+        write(record);
+    }
+
+    private synchronized void write(JsonObjectBuilder record) {
+        if (writer == null) {
+            return;
+        }
+
+        try {
+            writer.write(record.build().toString());
+            writer.newLine();
+
+            // Flush every record, the journal is only useful if it survives a crash.
+            writer.flush();
+        } catch (IOException e) {
+            // Losing the journal must not stop the run itself.
+            Logging.warn(e);
+            close();
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (writer != null) {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                Logging.warn(e);
+            }
+            writer = null;
+        }
+    }
+
+    /**
+     * Reads the journal and resolves its objects in the given layer. If the run was started in another layer, no
+     * objects are resolved, see {@link State#isOtherLayer()}.
+     *
+     * @param layer the layer to resume the run in
+     * @return the state of the run
+     * @throws IOException if the journal could not be read
+     */
+    public static State read(OsmDataLayer layer) throws IOException {
+        State state = new State();
+
+        try (BufferedReader in = Files.newBufferedReader(getFile().toPath(), StandardCharsets.UTF_8)) {
+            String line;
+
+            while ((line = in.readLine()) != null) {
+                final JsonObject record;
+
+                try (JsonReader reader = Json.createReader(new StringReader(line))) {
+                    record = reader.readObject();
+                } catch (JsonException e) {
+                    // The last record may be incomplete if JOSM was killed while writing it.
+                    Logging.warn(e);
+                    continue;
+                }
+
+                readRecord(record, layer, state);
+
+                if (state.otherLayer) {
+                    break;
+                }
+            }
+        }
+
+        return state;
+    }
+
+    private static void readRecord(JsonObject record, OsmDataLayer layer, State state) {
+        final String type = record.getString("type", "");
+
+        if (TYPE_QUEUE.equals(type)) {
+            readQueue(record, layer, state);
+            return;
+        }
+
+        final OsmPrimitive primitive = getPrimitive(layer.getDataSet(), record.getString("id", ""));
+
+        // Only objects that passed the checks of the queue are resumed.
+        if (primitive == null || !state.queuedPrimitives.contains(primitive)) {
+            return;
+        }
+
+        final ResolvedAddress address = record.containsKey("address")
+                ? fromJson(record.getJsonObject("address"))
+                : null;
+
+        if (TYPE_RESOLVED.equals(type) && address != null) {
+            state.resolvedAddresses.put(primitive, address);
+        } else if (TYPE_REVIEW.equals(type)) {
+            List<String> duplicateUrls = new ArrayList<>();
+
+            for (JsonValue duplicateUrl : record.getJsonArray("duplicates")) {
+                duplicateUrls.add(((JsonString) duplicateUrl).getString());
+            }
+
+            state.reviewItems.add(new AddressReviewItem(primitive, address, duplicateUrls, record.getString("reason", "")));
+        }
+    }
+
+    private static void readQueue(JsonObject record, OsmDataLayer layer, State state) {
+        final String file = record.getString("file", null);
+        state.layerName = record.getString("layer", "");
+
+        if (!state.layerName.equals(layer.getName()) || !Objects.equals(file,
+                layer.getAssociatedFile() == null ? null : layer.getAssociatedFile().getPath())) {
+            state.otherLayer = true;
+            return;
+        }
+
+        final boolean sameSession = SESSION_ID.equals(record.getString("session", ""));
+
+        if (!record.containsKey("objects")) {
+            return;
+        }
+
+        for (JsonValue value : record.getJsonArray("objects")) {
+            final JsonObject object = (JsonObject) value;
+            final OsmPrimitive primitive = getPrimitive(layer.getDataSet(), object.getString("id", ""));
+
+            // New objects get other IDs in every session, so after a restart the ID may belong to another object.
+            if (primitive == null || (!sameSession && primitive.getUniqueId() < 0) || !hasCenter(primitive, object)) {
+                state.missing++;
+            } else {
+                state.queue.add(primitive);
+                state.queuedPrimitives.add(primitive);
+            }
+        }
+    }
+
+    private static boolean hasCenter(OsmPrimitive primitive, JsonObject object) {
+        if (object.getJsonNumber("lat") == null || object.getJsonNumber("lon") == null) {
+            return false;
+        }
+
+        final LatLon center = primitive.getBBox().getCenter();
+        return Math.abs(center.lat() - object.getJsonNumber("lat").doubleValue()) <= CENTER_TOLERANCE
+                && Math.abs(center.lon() - object.getJsonNumber("lon").doubleValue()) <= CENTER_TOLERANCE;
+    }
+
+    private static String getId(OsmPrimitive primitive) {
+        return primitive.getType().getAPIName() + "/" + primitive.getUniqueId();
+    }
+
+    private static OsmPrimitive getPrimitive(DataSet dataSet, String id) {
+        int separator = id.indexOf('/');
+
+        if (separator < 0) {
+            return null;
+        }
+
+        try {
+            OsmPrimitiveType type = OsmPrimitiveType.fromApiTypeName(id.substring(0, separator));
+            OsmPrimitive primitive = dataSet.getPrimitiveById(
+                    new SimplePrimitiveId(Long.parseLong(id.substring(separator + 1)), type));
+
+            return primitive == null || !primitive.isUsable() ? null : primitive;
+        } catch (IllegalArgumentException e) {
+            Logging.trace(e);
+            return null;
+        }
+    }
+
+    private static JsonObjectBuilder toJson(ResolvedAddress address) {
+        JsonObjectBuilder json = Json.createObjectBuilder()
+                .add("lat", address.getCenter().lat())
+                .add("lon", address.getCenter().lon())
+                .add("municipality", address.getMunicipality())
+                .add("locality", address.getLocality())
+                .add("postcode", address.getPostcode())
+                .add("street", address.getStreetOrPlace())
+                .add("house_number", address.getHouseNumber())
+                .add("municipality_has_ambiguous_addresses", address.hasAmbiguousAddresses())
+                .add("address_date", address.getAddressDate())
+                .add("copyright", address.getCopyright())
+                .add("distance", address.getDistance());
+
+        if (address.getAddressType() == null) {
+            json.addNull("address_type");
+        } else {
+            json.add("address_type", address.getAddressType());
+        }
+
+        return json;
+    }
+
+    private static ResolvedAddress fromJson(JsonObject json) {
+        return new ResolvedAddress(
+                new LatLon(json.getJsonNumber("lat").doubleValue(), json.getJsonNumber("lon").doubleValue()),
+                json.getString("municipality"),
+                json.getString("locality"),
+                json.getString("postcode"),
+                json.getString("street"),
+                json.getString("house_number"),
+                json.getBoolean("municipality_has_ambiguous_addresses"),
+                json.isNull("address_type") ? null : json.getString("address_type"),
+                json.getString("address_date"),
+                json.getString("copyright"),
+                json.getJsonNumber("distance").doubleValue()
+        );
+    }
+
+    /**
+     * The state of an interrupted run as read from the journal.
+     */
+    public static class State {
+        protected final List<OsmPrimitive> queue = new ArrayList<>();
+        protected final Map<OsmPrimitive, ResolvedAddress> resolvedAddresses = new LinkedHashMap<>();
+        protected final List<AddressReviewItem> reviewItems = new ArrayList<>();
+        protected final Set<OsmPrimitive> queuedPrimitives = new HashSet<>();
+        protected String layerName;
+        protected boolean otherLayer;
+        protected int missing;
+
+        public List<OsmPrimitive> getQueue() {
+            return queue;
+        }
+
+        public Map<OsmPrimitive, ResolvedAddress> getResolvedAddresses() {
+            return resolvedAddresses;
+        }
+
+        public List<AddressReviewItem> getReviewItems() {
+            return reviewItems;
+        }
+
+        /**
+         * @return the number of objects of the run that no longer exist in the layer or have changed since
+         */
+        public int getMissing() {
+            return missing;
+        }
+
+        /**
+         * @return the name of the layer the run was started in
+         */
+        public String getLayerName() {
+            return layerName;
+        }
+
+        /**
+         * @return true if the run was started in another layer (or the layer was saved to another file since), in
+         * which case no objects were read
+         */
+        public boolean isOtherLayer() {
+            return otherLayer;
+        }
+    }
+}
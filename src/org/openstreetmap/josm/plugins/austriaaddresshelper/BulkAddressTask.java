@@ -0,0 +1,305 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.austriaaddresshelper;
+
+import static org.openstreetmap.josm.tools.I18n.tr;
+import static org.openstreetmap.josm.tools.I18n.trn;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.swing.JOptionPane;
+
+import org.openstreetmap.josm.command.ChangePropertyCommand;
+import org.openstreetmap.josm.command.Command;
+import org.openstreetmap.josm.command.SequenceCommand;
+import org.openstreetmap.josm.data.UndoRedoHandler;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.DefaultNameFormatter;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.gui.MainApplication;
+import org.openstreetmap.josm.gui.Notification;
+import org.openstreetmap.josm.gui.PleaseWaitRunnable;
+import org.openstreetmap.josm.gui.layer.OsmDataLayer;
+import org.openstreetmap.josm.tools.Logging;
+
+/**
+ * Fetches the addresses of several objects in the background. Objects that need a decision (duplicates, failed
+ * duplicate checks, unknown address types, failed lookups) do not interrupt the run but are collected and presented
+ * in a single {@link AddressReviewDialog} at the end.
+ */
+public class BulkAddressTask extends PleaseWaitRunnable {
+
+    // Set while a run fetches addresses or applies its results. The journal of such a run belongs to it, it must
+    // neither be resumed nor replaced by a second run.
+    private static volatile boolean running;
+
+    protected final OsmDataLayer layer;
+    protected final List<OsmPrimitive> primitives;
+    protected final Map<OsmPrimitive, ResolvedAddress> resolvedAddresses = new LinkedHashMap<>();
+    protected final List<AddressReviewItem> reviewItems = new ArrayList<>();
+    protected final Set<OsmPrimitive> processedPrimitives = new HashSet<>();
+    protected final boolean resumed;
+    protected BatchJournal journal;
+    protected boolean canceled;
+
+    /**
+     * @param layer the layer of the objects
+     * @param primitives the objects to fetch the addresses for
+     */
+    public BulkAddressTask(OsmDataLayer layer, Collection<OsmPrimitive> primitives) {
+        super(tr("Fetching addresses"), false);
+        this.layer = layer;
+        this.primitives = new ArrayList<>(primitives);
+        this.resumed = false;
+    }
+
+    /**
+     * Creates a task that continues an interrupted run. Objects that were already resolved or queued for review with
+     * an address are not fetched again, failed lookups are retried.
+     *
+     * @param layer the layer the run was started in
+     * @param state the state of the run as read from the {@link BatchJournal}
+     */
+    public BulkAddressTask(OsmDataLayer layer, BatchJournal.State state) {
+        super(tr("Fetching addresses"), false);
+        this.layer = layer;
+        this.primitives = new ArrayList<>(state.getQueue());
+        this.resumed = true;
+
+        resolvedAddresses.putAll(state.getResolvedAddresses());
+        processedPrimitives.addAll(resolvedAddresses.keySet());
+
+        for (AddressReviewItem item : state.getReviewItems()) {
+            if (item.getAddress() != null) {
+                reviewItems.add(item);
+                processedPrimitives.add(item.getPrimitive());
+            }
+        }
+    }
+
+    /**
+     * @return true if a run is in progress, in which case no other run may be started or resumed
+     */
+    public static boolean isRunning() {
+        return running;
+    }
+
+    private static void setRunning(boolean running) {
+        BulkAddressTask.running = running;
+        ResumeBulkAddressAction.refreshEnabledState();
+    }
+
+    @Override
+    protected void cancel() {
+        canceled = true;
+    }
+
+    @Override
+    protected void realRun() {
+        setRunning(true);
+
+        try {
+            fetchAddresses();
+        } catch (RuntimeException e) {
+            // finish() is not called then, the journal is kept for resuming the run.
+            setRunning(false);
+            throw e;
+        }
+    }
+
+    protected void fetchAddresses() {
+        getProgressMonitor().setTicksCount(primitives.size());
+
+        try {
+            journal = resumed ? BatchJournal.resume() : BatchJournal.start(layer, primitives);
+        } catch (IOException e) {
+            // The run works without a journal, it just cannot be resumed.
+            Logging.warn(e);
+        }
+
+        for (OsmPrimitive primitive : primitives) {
+            if (canceled) {
+                break;
+            }
+
+            if (processedPrimitives.contains(primitive)) {
+                getProgressMonitor().worked(1);
+                continue;
+            }
+
+            getProgressMonitor().subTask(tr("Fetching address for {0}",
+                    primitive.getDisplayName(DefaultNameFormatter.getInstance())));
+            process(primitive);
+            processedPrimitives.add(primitive);
+            getProgressMonitor().worked(1);
+        }
+
+        if (journal != null) {
+            journal.close();
+        }
+    }
+
+    protected void process(OsmPrimitive primitive) {
+        final ResolvedAddress address;
+
+        try {
+            address = AustriaAddressHelperAction.fetchAddress(primitive);
+        } catch (IOException | RuntimeException e) {
+            Logging.trace(e);
+            addReviewItem(AddressReviewItem.failed(primitive, tr("Address lookup failed: {0}", e.toString())));
+            return;
+        }
+
+        if (address == null) {
+            addReviewItem(AddressReviewItem.failed(primitive, tr("No address was found for this object.")));
+            return;
+        }
+
+        List<String> duplicateUrls = Collections.emptyList();
+        String reason = null;
+
+        if (Boolean.TRUE.equals(AustriaAddressHelperAction.checkDuplicates.get())) {
+            try {
+                duplicateUrls = AustriaAddressHelperAction.queryUrlsOfObjectsWithThatAddress(
+                        address.getTagsForDuplicateCheck(), address.getCenter());
+
+                if (!duplicateUrls.isEmpty()) {
+                    reason = tr("Objects in OpenStreetMap already have this address.");
+                }
+            } catch (IOException | RuntimeException e) {
+                // A throttled Overpass server answers with a non-JSON body, which must not abort the whole run.
+                Logging.trace(e);
+                reason = tr("Unable to check whether this address already exists in OpenStreetMap: {0}", e.toString());
+            }
+        }
+
+        if (address.getAddressType() == null) {
+            String addressTypeReason = tr("Could not determine whether {0} is a street or a place.",
+                    address.getStreetOrPlace());
+            reason = reason == null ? addressTypeReason : reason + " " + addressTypeReason;
+        }
+
+        if (reason == null) {
+            resolvedAddresses.put(primitive, address);
+
+            if (journal != null) {
+                journal.writeResolved(primitive, address);
+            }
+        } else {
+            addReviewItem(new AddressReviewItem(primitive, address, duplicateUrls, reason));
+        }
+    }
+
+    protected void addReviewItem(AddressReviewItem item) {
+        reviewItems.add(item);
+
+        if (journal != null) {
+            journal.writeReview(item);
+        }
+    }
+
+    @Override
+    protected void finish() {
+        // The shared strings and tag templates are only needed while the results of this run are applied.
+        try {
+            applyResults();
+        } finally {
+            AddressDictionary.clear();
+            setRunning(false);
+        }
+    }
+
+    protected void applyResults() {
+        // The results belong to the layer of the run, not to whatever layer is active now. If that layer was closed,
+        // the journal is kept so that the run can be resumed once the layer is open again.
+        if (!MainApplication.getLayerManager().containsLayer(layer)) {
+            new Notification(
+                    "<strong>" + tr("Austria Address Helper") + "</strong><br />" +
+                            tr("The layer \"{0}\" of the address run was closed. Open it again and use \"Resume Address Run\" to add the addresses.",
+                                    layer.getName())
+            )
+                    .setIcon(JOptionPane.WARNING_MESSAGE)
+                    .setDuration(Notification.TIME_LONG)
+                    .show();
+
+            return;
+        }
+
+        if (!reviewItems.isEmpty()) {
+            AddressReviewDialog dialog = new AddressReviewDialog(reviewItems);
+            dialog.showDialog();
+
+            for (AddressReviewItem item : dialog.getAcceptedItems()) {
+                resolvedAddresses.put(item.getPrimitive(), item.getAddress());
+            }
+        }
+
+        final DataSet dataSet = layer.getDataSet();
+        final List<Command> commands = new ArrayList<>();
+        final Set<String> copyrights = new LinkedHashSet<>();
+
+        for (Map.Entry<OsmPrimitive, ResolvedAddress> entry : resolvedAddresses.entrySet()) {
+            // The object may have been deleted in the meantime.
+            if (entry.getKey().getDataSet() != dataSet || entry.getKey().isDeleted()) {
+                continue;
+            }
+
+            commands.add(new ChangePropertyCommand(Collections.singleton(entry.getKey()), entry.getValue().getTags()));
+            copyrights.add(entry.getValue().getCopyright());
+        }
+
+        if (!commands.isEmpty()) {
+            // Add the data source to the changeset (not to the object because that can be changed easily).
+            for (String copyright : copyrights) {
+                dataSet.addChangeSetTag("source", copyright);
+            }
+
+            UndoRedoHandler.getInstance().add(new SequenceCommand(trn("Add address", "Add addresses", commands.size()), commands));
+        }
+
+        // Only now the results are safe, until then a crash (e.g. during the review) must leave the run resumable.
+        updateJournal();
+
+        new Notification(
+                "<strong>" + tr("Austria Address Helper") + "</strong><br />" +
+                        trn("Added an address to {0} of {1} object.", "Added addresses to {0} of {1} objects.",
+                                primitives.size(), commands.size(), primitives.size())
+        )
+                .setIcon(commands.isEmpty() ? JOptionPane.WARNING_MESSAGE : JOptionPane.INFORMATION_MESSAGE)
+                .setDuration(Notification.TIME_DEFAULT)
+                .show();
+    }
+
+    /**
+     * Discards the journal of a completed run. If the run was canceled, only the objects that were not processed yet
+     * are kept, because the results so far are applied now.
+     */
+    protected void updateJournal() {
+        final List<OsmPrimitive> remaining = new ArrayList<>();
+
+        for (OsmPrimitive primitive : primitives) {
+            if (!processedPrimitives.contains(primitive)) {
+                remaining.add(primitive);
+            }
+        }
+
+        if (remaining.isEmpty()) {
+            BatchJournal.delete();
+            return;
+        }
+
+        try {
+            BatchJournal.start(layer, remaining).close();
+        } catch (IOException e) {
+            Logging.warn(e);
+        }
+    }
+}
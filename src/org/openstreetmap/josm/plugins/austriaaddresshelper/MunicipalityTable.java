@@ -0,0 +1,392 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.austriaaddresshelper;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.openstreetmap.josm.data.preferences.StringProperty;
+import org.openstreetmap.josm.spi.preferences.Config;
+import org.openstreetmap.josm.tools.Logging;
+
+/**
+ * Precomputed per municipality and postcode facts of the Austrian address register: the extent of the addresses,
+ * whether addresses are ambiguous without the locality, and the names of the localities and streets. The table is
+ * memory-mapped and only read when it is first needed.
+ * <p>
+ * The table is generated from the address register of the BEV with the {@code municipality-table} target of the
+ * build file (see {@code tools/}) and packaged as {@code data/municipalities.bin}. File format (big-endian):
+ * <ul>
+ * <li>Header: magic {@code "ATMP"}, version (int), number of records (int), reserved (int)</li>
+ * <li>Records of 36 bytes, sorted by municipality code and postcode: municipality code (int), postcode (short),
+ * flags (byte, bit 0: ambiguous addresses), padding (byte), min lat, min lon, max lat, max lon (float each), offset of
+ * the municipality name (int), offset of the localities (int), offset of the streets and places (int)</li>
+ * <li>Strings: a name is a length (unsigned short) followed by UTF-8 bytes. A list is a count (int) followed by that
+ * many offsets (int) of names, sorted by their unsigned UTF-8 bytes.</li>
+ * </ul>
+ * All offsets are counted from the start of the file.
+ */
+public final class MunicipalityTable {
+    static final StringProperty tableFile = new StringProperty("austriaaddresshelper.municipality-table", "");
+
+    static final int MAGIC = 0x41544d50;
+    static final int VERSION = 2;
+    static final int HEADER_SIZE = 16;
+    static final int RECORD_SIZE = 36;
+    static final int FLAG_AMBIGUOUS = 1;
+
+    private static final String RESOURCE = "/data/municipalities.bin";
+
+    private static MunicipalityTable instance;
+    private static boolean loaded;
+
+    private final ByteBuffer buffer;
+    private final int recordCount;
+    private final Map<String, List<Integer>> codesByName = new HashMap<>();
+
+    private MunicipalityTable(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IOException("Invalid municipality table");
+        }
+
+        recordCount = buffer.getInt(8);
+
+        if (buffer.capacity() < HEADER_SIZE + (long) recordCount * RECORD_SIZE) {
+            throw new IOException("Truncated municipality table");
+        }
+
+        // The records are sorted by code, so every municipality is only added once.
+        for (int i = 0; i < recordCount; i++) {
+            int code = getCode(i);
+
+            if (i == 0 || getCode(i - 1) != code) {
+                String name = readString(buffer.getInt(recordOffset(i) + 24));
+                codesByName.computeIfAbsent(name, n -> new ArrayList<>(1)).add(code);
+            }
+        }
+    }
+
+    /**
+     * Returns the table, loading it on first use.
+     *
+     * @return the table, or null if no table is available
+     */
+    public static synchronized MunicipalityTable getInstance() {
+        if (!loaded) {
+            loaded = true;
+
+            try {
+                File file = getTableFile();
+
+                if (file != null) {
+                    instance = open(file);
+                }
+            } catch (IOException e) {
+                Logging.warn(e);
+            }
+        }
+
+        return instance;
+    }
+
+    /**
+     * Memory-maps a table file.
+     *
+     * @param file the table file
+     * @return the table
+     * @throws IOException if the file cannot be read or is not a table
+     */
+    static MunicipalityTable open(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            return new MunicipalityTable(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Looks up a municipality and postcode in the table.
+     *
+     * @param municipality the name of the municipality (addr:city)
+     * @param postcode the postcode
+     * @return the entry, or null if there is no table or it has no such entry
+     */
+    public static Entry lookup(String municipality, String postcode) {
+        MunicipalityTable table = getInstance();
+        return table == null ? null : table.get(municipality, postcode);
+    }
+
+    private static File getTableFile() throws IOException {
+        if (!tableFile.get().isEmpty()) {
+            return new File(tableFile.get());
+        }
+
+        // A resource inside the plugin jar cannot be memory-mapped, so it is extracted to the cache first.
+        URL resource = MunicipalityTable.class.getResource(RESOURCE);
+        if (resource == null) {
+            return null;
+        }
+
+        File cacheDirectory = new File(Config.getDirs().getCacheDirectory(true), "austriaaddresshelper");
+        if (!cacheDirectory.isDirectory() && !cacheDirectory.mkdirs()) {
+            throw new IOException("Could not create " + cacheDirectory);
+        }
+
+        // Another JOSM instance may have mapped the extracted file, and a mapped file cannot be replaced on Windows.
+        // The table only changes with a plugin update, and a regenerated table practically never has the same size,
+        // so it is only extracted if it is missing or its size differs.
+        File file = new File(cacheDirectory, "municipalities.bin");
+        URLConnection connection = resource.openConnection();
+        if (!file.isFile() || file.length() != connection.getContentLengthLong()) {
+            try (InputStream in = connection.getInputStream()) {
+                Files.copy(in, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+
+        return file;
+    }
+
+    /**
+     * Looks up a municipality and postcode.
+     *
+     * @param municipality the name of the municipality (addr:city)
+     * @param postcode the postcode
+     * @return the entry, or null if there is none
+     */
+    public Entry get(String municipality, String postcode) {
+        List<Integer> codes = municipality == null ? null : codesByName.get(municipality);
+        int postcodeNumber = parsePostcode(postcode);
+
+        if (codes == null || postcodeNumber < 0) {
+            return null;
+        }
+
+        // Some municipality names exist in more than one state, the postcode tells them apart.
+        for (int code : codes) {
+            int index = find(code, postcodeNumber);
+
+            if (index >= 0) {
+                return new Entry(index);
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Whether the table contains the municipality at all, regardless of the postcode.
+     *
+     * @param municipality the name of the municipality (addr:city)
+     * @return true if the municipality is known
+     */
+    public boolean containsMunicipality(String municipality) {
+        return municipality != null && codesByName.containsKey(municipality);
+    }
+
+    private int find(int code, int postcode) {
+        long key = ((long) code << 16) | postcode;
+        int low = 0;
+        int high = recordCount - 1;
+
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            long middleKey = ((long) getCode(middle) << 16) | getPostcode(middle);
+
+            if (middleKey < key) {
+                low = middle + 1;
+            } else if (middleKey > key) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+
+        return -1;
+    }
+
+    private static int parsePostcode(String postcode) {
+        if (postcode == null || postcode.length() != 4) {
+            return -1;
+        }
+
+        try {
+            return Integer.parseInt(postcode);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static int recordOffset(int index) {
+        return HEADER_SIZE + index * RECORD_SIZE;
+    }
+
+    private int getCode(int index) {
+        return buffer.getInt(recordOffset(index));
+    }
+
+    private int getPostcode(int index) {
+        return buffer.getShort(recordOffset(index) + 4) & 0xffff;
+    }
+
+    /**
+     * Compares two names by their unsigned UTF-8 bytes, the order of the lists in the table.
+     */
+    static int compareUtf8(byte[] a, byte[] b) {
+        final int length = Math.min(a.length, b.length);
+
+        for (int i = 0; i < length; i++) {
+            int difference = (a[i] & 0xff) - (b[i] & 0xff);
+            if (difference != 0) {
+                return difference;
+            }
+        }
+
+        return a.length - b.length;
+    }
+
+    private int compareUtf8(int offset, byte[] name) {
+        final int length = buffer.getShort(offset) & 0xffff;
+        final int commonLength = Math.min(length, name.length);
+
+        for (int i = 0; i < commonLength; i++) {
+            int difference = (buffer.get(offset + 2 + i) & 0xff) - (name[i] & 0xff);
+            if (difference != 0) {
+                return difference;
+            }
+        }
+
+        return length - name.length;
+    }
+
+    private boolean listContains(int listOffset, String name) {
+        if (name == null) {
+            return false;
+        }
+
+        // The names are compared in place, only the searched name is encoded.
+        final byte[] key = name.getBytes(StandardCharsets.UTF_8);
+        int low = 0;
+        int high = buffer.getInt(listOffset) - 1;
+
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int comparison = compareUtf8(buffer.getInt(listOffset + 4 + middle * 4), key);
+
+            if (comparison < 0) {
+                low = middle + 1;
+            } else if (comparison > 0) {
+                high = middle - 1;
+            } else {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private List<String> readList(int listOffset) {
+        final int count = buffer.getInt(listOffset);
+        final List<String> names = new ArrayList<>(count);
+
+        for (int i = 0; i < count; i++) {
+            names.add(readString(buffer.getInt(listOffset + 4 + i * 4)));
+        }
+
+        return Collections.unmodifiableList(names);
+    }
+
+    private String readString(int offset) {
+        byte[] bytes = new byte[buffer.getShort(offset) & 0xffff];
+
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = buffer.get(offset + 2 + i);
+        }
+
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * The facts about one combination of municipality and postcode.
+     */
+    public final class Entry {
+        private final int offset;
+
+        private Entry(int index) {
+            this.offset = recordOffset(index);
+        }
+
+        public int getMunicipalityCode() {
+            return buffer.getInt(offset);
+        }
+
+        public String getMunicipality() {
+            return readString(buffer.getInt(offset + 24));
+        }
+
+        /**
+         * @return true if some addresses in this municipality and postcode need addr:suburb to be unique
+         */
+        public boolean hasAmbiguousAddresses() {
+            return (buffer.get(offset + 6) & FLAG_AMBIGUOUS) != 0;
+        }
+
+        public double getMinLat() {
+            return buffer.getFloat(offset + 8);
+        }
+
+        public double getMinLon() {
+            return buffer.getFloat(offset + 12);
+        }
+
+        public double getMaxLat() {
+            return buffer.getFloat(offset + 16);
+        }
+
+        public double getMaxLon() {
+            return buffer.getFloat(offset + 20);
+        }
+
+        /**
+         * @return the localities, sorted by their UTF-8 bytes
+         */
+        public List<String> getLocalities() {
+            return readList(buffer.getInt(offset + 28));
+        }
+
+        /**
+         * @param locality the name of a locality (addr:suburb)
+         * @return true if the locality belongs to this municipality and postcode
+         */
+        public boolean containsLocality(String locality) {
+            return listContains(buffer.getInt(offset + 28), locality);
+        }
+
+        /**
+         * @return the streets and places, sorted by their UTF-8 bytes
+         */
+        public List<String> getStreets() {
+            return readList(buffer.getInt(offset + 32));
+        }
+
+        /**
+         * @param streetOrPlace the name of a street or place (addr:street or addr:place) as spelled in the register
+         * @return true if the register has addresses in this street or place for this municipality and postcode
+         */
+        public boolean containsStreet(String streetOrPlace) {
+            return listContains(buffer.getInt(offset + 32), streetOrPlace);
+        }
+    }
+}
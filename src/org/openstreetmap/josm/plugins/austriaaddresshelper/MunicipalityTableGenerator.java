@@ -0,0 +1,259 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.austriaaddresshelper;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.openstreetmap.josm.data.Preferences;
+import org.openstreetmap.josm.data.coor.EastNorth;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.projection.Projection;
+import org.openstreetmap.josm.data.projection.Projections;
+import org.openstreetmap.josm.gui.preferences.JosmBaseDirectories;
+import org.openstreetmap.josm.gui.preferences.JosmUrls;
+import org.openstreetmap.josm.spi.preferences.Config;
+
+/**
+ * Generates the {@link MunicipalityTable} from the address register of the BEV ("Adressregister", free of charge at
+ * <a href="https://www.bev.gv.at">bev.gv.at</a>, product "Adresse Relationale Tabellen").
+ * <p>
+ * Usage: {@code MunicipalityTableGenerator <directory of the unzipped register> <output file>}. The directory has to
+ * contain {@code GEMEINDE.csv}, {@code ORTSCHAFT.csv}, {@code STRASSE.csv} and {@code ADRESSE.csv}. The columns are
+ * found by their names in the header line, so the order of the columns does not matter.
+ * <p>
+ * The plugin itself does not use this class, it is run by the ant target {@code municipality-table}.
+ */
+public final class MunicipalityTableGenerator {
+    private static final char SEPARATOR = ';';
+
+    private final Map<String, String> municipalities;
+    private final Map<String, String> localities;
+    private final Map<String, String> streets;
+    private final Map<Long, MunicipalityTableWriter.Record> records = new HashMap<>();
+    // Municipality code and postcode -> street name and house number -> locality code of the first such address
+    private final Map<Long, Map<String, String>> localitiesOfAddresses = new HashMap<>();
+    private final Map<String, Projection> projections = new HashMap<>();
+
+    /**
+     * @param municipalities the municipality names by municipality code (GKZ)
+     * @param localities the locality names by locality code (OKZ)
+     * @param streets the street names by street code (SKZ)
+     */
+    MunicipalityTableGenerator(Map<String, String> municipalities, Map<String, String> localities,
+                               Map<String, String> streets) {
+        this.municipalities = municipalities;
+        this.localities = localities;
+        this.streets = streets;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: MunicipalityTableGenerator <directory of the unzipped register> <output file>");
+            System.exit(1);
+        }
+
+        // The projections of JOSM read their definitions through the preferences.
+        Config.setPreferencesInstance(Preferences.main());
+        Config.setBaseDirectoriesProvider(JosmBaseDirectories.getInstance());
+        Config.setUrlsProvider(JosmUrls.getInstance());
+
+        final File directory = new File(args[0]);
+        final MunicipalityTableWriter writer = readRegister(directory).createWriter();
+
+        try (OutputStream out = Files.newOutputStream(new File(args[1]).toPath())) {
+            writer.write(out);
+        }
+    }
+
+    private static MunicipalityTableGenerator readRegister(File directory) throws IOException {
+        final MunicipalityTableGenerator generator = new MunicipalityTableGenerator(
+                readNames(new File(directory, "GEMEINDE.csv"), "GKZ", "GEMEINDENAME"),
+                readNames(new File(directory, "ORTSCHAFT.csv"), "OKZ", "ORTSNAME"),
+                readNames(new File(directory, "STRASSE.csv"), "SKZ", "STRASSENNAME"));
+        generator.readAddresses(new File(directory, "ADRESSE.csv"));
+        return generator;
+    }
+
+    private void readAddresses(File file) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            final List<String> header = parseLine(reader.readLine());
+            final int gkzColumn = getColumn(header, "GKZ");
+            final int okzColumn = getColumn(header, "OKZ");
+            final int plzColumn = getColumn(header, "PLZ");
+            final int skzColumn = getColumn(header, "SKZ");
+            final int rwColumn = getColumn(header, "RW");
+            final int hwColumn = getColumn(header, "HW");
+            final int epsgColumn = getColumn(header, "EPSG");
+
+            // House numbers are split into several columns (HAUSNRZAHL1, HAUSNRBUCHSTABE1, ...).
+            final List<Integer> houseNumberColumns = new ArrayList<>();
+            for (int i = 0; i < header.size(); i++) {
+                if (header.get(i).startsWith("HAUSNR")) {
+                    houseNumberColumns.add(i);
+                }
+            }
+
+            String line;
+            while ((line = reader.readLine()) != null) {
+                final List<String> fields = parseLine(line);
+
+                final StringBuilder houseNumber = new StringBuilder();
+                for (int column : houseNumberColumns) {
+                    houseNumber.append('|').append(fields.get(column));
+                }
+
+                final LatLon latLon = getProjection(fields.get(epsgColumn)).eastNorth2latlon(new EastNorth(
+                        Double.parseDouble(fields.get(rwColumn)), Double.parseDouble(fields.get(hwColumn))));
+
+                addAddress(fields.get(gkzColumn), fields.get(okzColumn), fields.get(plzColumn),
+                        fields.get(skzColumn), houseNumber.toString(), latLon.lat(), latLon.lon());
+            }
+        }
+    }
+
+    /**
+     * Adds an address of the register to the record of its municipality and postcode.
+     *
+     * @param gkz the municipality code
+     * @param okz the locality code
+     * @param plz the postcode
+     * @param skz the street code
+     * @param houseNumber the house number, all its parts in one string
+     * @param lat the latitude of the address
+     * @param lon the longitude of the address
+     * @throws IOException if the municipality code is not known
+     */
+    void addAddress(String gkz, String okz, String plz, String skz, String houseNumber, double lat, double lon)
+            throws IOException {
+        final int postcode = Integer.parseInt(plz);
+        final long key = ((long) Integer.parseInt(gkz) << 16) | postcode;
+
+        final String municipality = municipalities.get(gkz);
+        if (municipality == null) {
+            throw new IOException("Unknown municipality code " + gkz);
+        }
+
+        final MunicipalityTableWriter.Record record = records.computeIfAbsent(key,
+                k -> new MunicipalityTableWriter.Record(Integer.parseInt(gkz), postcode, municipality));
+        record.addAddress(lat, lon);
+
+        if (localities.containsKey(okz)) {
+            record.addLocality(localities.get(okz));
+        }
+
+        final String street = streets.get(skz);
+        if (street != null) {
+            record.addStreet(street);
+        }
+
+        // The same street name and house number in a second locality makes addr:suburb necessary. Streets with the
+        // same name in different localities have different street codes, so the codes cannot be compared.
+        final String address = (street == null ? skz : street) + houseNumber;
+        final String firstLocality = localitiesOfAddresses.computeIfAbsent(key, k -> new HashMap<>())
+                .putIfAbsent(address, okz);
+        if (firstLocality != null && !firstLocality.equals(okz)) {
+            record.setAmbiguous(true);
+        }
+    }
+
+    /**
+     * @return a writer with the records of all addresses added so far
+     */
+    MunicipalityTableWriter createWriter() {
+        final MunicipalityTableWriter writer = new MunicipalityTableWriter();
+        records.values().forEach(writer::add);
+        return writer;
+    }
+
+    private Projection getProjection(String epsg) {
+        return projections.computeIfAbsent(epsg, code -> {
+            final Projection projection = Projections.getProjectionByCode("EPSG:" + code);
+            if (projection == null) {
+                throw new IllegalArgumentException("Unknown projection EPSG:" + code);
+            }
+            return projection;
+        });
+    }
+
+    private static Map<String, String> readNames(File file, String codeColumnName, String nameColumnName)
+            throws IOException {
+        final Map<String, String> names = new HashMap<>();
+
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            final List<String> header = parseLine(reader.readLine());
+            final int codeColumn = getColumn(header, codeColumnName);
+            final int nameColumn = getColumn(header, nameColumnName);
+
+            String line;
+            while ((line = reader.readLine()) != null) {
+                final List<String> fields = parseLine(line);
+                names.put(fields.get(codeColumn), fields.get(nameColumn));
+            }
+        }
+
+        return names;
+    }
+
+    private static int getColumn(List<String> header, String name) throws IOException {
+        final int column = header.indexOf(name);
+
+        if (column < 0) {
+            throw new IOException("Missing column " + name + " in " + header);
+        }
+
+        return column;
+    }
+
+    /**
+     * Splits a line of the register. The fields are separated by semicolons and may be quoted, a quote within a quoted
+     * field is doubled.
+     */
+    static List<String> parseLine(String line) throws IOException {
+        if (line == null) {
+            throw new IOException("Missing header line");
+        }
+
+        final List<String> fields = new ArrayList<>();
+        final StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+
+        for (int i = 0; i < line.length(); i++) {
+            final char c = line.charAt(i);
+
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == SEPARATOR) {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+
+        fields.add(field.toString());
+
+        // The first line may start with a byte order mark.
+        if (!fields.isEmpty() && fields.get(0).startsWith("\uFEFF")) {
+            fields.set(0, fields.get(0).substring(1));
+        }
+
+        return fields;
+    }
+}
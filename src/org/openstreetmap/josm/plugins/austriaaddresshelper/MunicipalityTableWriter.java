@@ -0,0 +1,184 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.austriaaddresshelper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Writes the file format read by {@link MunicipalityTable}. It is used by the generator in the tools directory and by
+ * the tests, the plugin itself only reads tables.
+ */
+final class MunicipalityTableWriter {
+    private final List<Record> records = new ArrayList<>();
+
+    /**
+     * Adds a record to the table.
+     *
+     * @param record the record, its municipality code and postcode must not have been added before
+     */
+    void add(Record record) {
+        records.add(record);
+    }
+
+    /**
+     * Writes the table.
+     *
+     * @param out the stream to write to, it is not closed
+     * @throws IOException if writing fails or two records have the same municipality code and postcode
+     */
+    void write(OutputStream out) throws IOException {
+        final List<Record> sortedRecords = new ArrayList<>(records);
+        sortedRecords.sort(Comparator.comparingLong(Record::getKey));
+
+        for (int i = 1; i < sortedRecords.size(); i++) {
+            if (sortedRecords.get(i - 1).getKey() == sortedRecords.get(i).getKey()) {
+                throw new IOException("Duplicate record " + sortedRecords.get(i).code + "/" + sortedRecords.get(i).postcode);
+            }
+        }
+
+        // The strings and lists follow the records, so their offsets are only known once the records are counted.
+        final StringArea strings = new StringArea(
+                MunicipalityTable.HEADER_SIZE + sortedRecords.size() * MunicipalityTable.RECORD_SIZE);
+        final DataOutputStream data = new DataOutputStream(out);
+
+        data.writeInt(MunicipalityTable.MAGIC);
+        data.writeInt(MunicipalityTable.VERSION);
+        data.writeInt(sortedRecords.size());
+        data.writeInt(0);
+
+        for (Record record : sortedRecords) {
+            data.writeInt(record.code);
+            data.writeShort(record.postcode);
+            data.writeByte(record.ambiguous ? MunicipalityTable.FLAG_AMBIGUOUS : 0);
+            data.writeByte(0);
+            data.writeFloat(record.minLat);
+            data.writeFloat(record.minLon);
+            data.writeFloat(record.maxLat);
+            data.writeFloat(record.maxLon);
+            data.writeInt(strings.addString(record.municipality));
+            data.writeInt(strings.addList(record.localities));
+            data.writeInt(strings.addList(record.streets));
+        }
+
+        strings.bytes.writeTo(data);
+        data.flush();
+    }
+
+    /**
+     * The facts about one combination of municipality and postcode.
+     */
+    static final class Record {
+        private final int code;
+        private final int postcode;
+        private final String municipality;
+        private final Set<String> localities = new HashSet<>();
+        private final Set<String> streets = new HashSet<>();
+        private boolean ambiguous;
+        private float minLat = Float.POSITIVE_INFINITY;
+        private float minLon = Float.POSITIVE_INFINITY;
+        private float maxLat = Float.NEGATIVE_INFINITY;
+        private float maxLon = Float.NEGATIVE_INFINITY;
+
+        /**
+         * @param code the municipality code (Gemeindekennziffer)
+         * @param postcode the postcode, 1000 to 9999
+         * @param municipality the name of the municipality
+         */
+        Record(int code, int postcode, String municipality) {
+            if (postcode < 0 || postcode > 0xffff) {
+                throw new IllegalArgumentException("Invalid postcode " + postcode);
+            }
+
+            this.code = code;
+            this.postcode = postcode;
+            this.municipality = municipality;
+        }
+
+        long getKey() {
+            return ((long) code << 16) | postcode;
+        }
+
+        void addAddress(double lat, double lon) {
+            minLat = Math.min(minLat, (float) lat);
+            minLon = Math.min(minLon, (float) lon);
+            maxLat = Math.max(maxLat, (float) lat);
+            maxLon = Math.max(maxLon, (float) lon);
+        }
+
+        void addLocality(String locality) {
+            localities.add(locality);
+        }
+
+        void addStreet(String streetOrPlace) {
+            streets.add(streetOrPlace);
+        }
+
+        void setAmbiguous(boolean ambiguous) {
+            this.ambiguous = ambiguous;
+        }
+    }
+
+    private static final class StringArea {
+        private final int start;
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final DataOutputStream data = new DataOutputStream(bytes);
+        private final Map<String, Integer> offsets = new HashMap<>();
+
+        StringArea(int start) {
+            this.start = start;
+        }
+
+        int addString(String value) throws IOException {
+            final Integer existing = offsets.get(value);
+
+            if (existing != null) {
+                return existing;
+            }
+
+            final byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+
+            if (utf8.length > 0xffff) {
+                throw new IOException("Name too long: " + value);
+            }
+
+            final int offset = start + data.size();
+            data.writeShort(utf8.length);
+            data.write(utf8);
+            offsets.put(value, offset);
+            return offset;
+        }
+
+        int addList(Set<String> values) throws IOException {
+            // MunicipalityTable searches the lists by their UTF-8 bytes, so they have to be sorted that way.
+            final byte[][] sorted = new byte[values.size()][];
+            int i = 0;
+            for (String value : values) {
+                sorted[i++] = value.getBytes(StandardCharsets.UTF_8);
+            }
+            Arrays.sort(sorted, MunicipalityTable::compareUtf8);
+
+            final int[] stringOffsets = new int[sorted.length];
+            for (i = 0; i < sorted.length; i++) {
+                stringOffsets[i] = addString(new String(sorted[i], StandardCharsets.UTF_8));
+            }
+
+            final int offset = start + data.size();
+            data.writeInt(stringOffsets.length);
+            for (int stringOffset : stringOffsets) {
+                data.writeInt(stringOffset);
+            }
+            return offset;
+        }
+    }
+}
@@ -0,0 +1,129 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.austriaaddresshelper;
+
+import java.util.Map;
+
+import org.openstreetmap.josm.data.coor.LatLon;
+
+/**
+ * An address as returned by the reverse geocoder for one object, before it is applied.
+ */
+public class ResolvedAddress {
+    public static final String COUNTRY = "AT";
+
+    protected final LatLon center;
+    protected final String municipality;
+    protected final String locality;
+    protected final String postcode;
+    protected final String streetOrPlace;
+    protected final String houseNumber;
+    protected final boolean municipalityHasAmbiguousAddresses;
+    protected final String addressDate;
+    protected final String copyright;
+    protected final double distance;
+
+    // Either "street", "place" or null if it could not be determined automatically.
+    protected String addressType;
+
+    public ResolvedAddress(LatLon center, String municipality, String locality, String postcode, String streetOrPlace,
+                           String houseNumber, boolean municipalityHasAmbiguousAddresses, String addressType,
+                           String addressDate, String copyright, double distance) {
+        this.center = center;
+        this.municipality = AddressDictionary.intern(municipality);
+        this.locality = AddressDictionary.intern(locality);
+        this.postcode = AddressDictionary.intern(postcode);
+        this.streetOrPlace = AddressDictionary.intern(streetOrPlace);
+        // House numbers are nearly unique per address, interning them would only fill the dictionary.
+        this.houseNumber = houseNumber;
+        this.municipalityHasAmbiguousAddresses = municipalityHasAmbiguousAddresses;
+        this.addressType = AddressDictionary.intern(addressType);
+        this.addressDate = AddressDictionary.intern(addressDate);
+        this.copyright = AddressDictionary.intern(copyright);
+        this.distance = distance;
+    }
+
+    /**
+     * Returns the tags that will be added to the object.
+     *
+     * @return the address tags, without a street-type tag if the address type is still unknown
+     */
+    public Map<String, String> getTags() {
+        return buildTags(addressType);
+    }
+
+    /**
+     * Returns the tags to search for duplicates with. The duplicate check matches all street-type tags anyway, so
+     * an address with an unknown address type is searched for as if it was a street.
+     *
+     * @return the address tags including a street-type tag
+     */
+    public Map<String, String> getTagsForDuplicateCheck() {
+        return buildTags(addressType == null ? AddressTypeDialog.ADDRESS_TYPE_STREET : addressType);
+    }
+
+    protected Map<String, String> buildTags(String type) {
+        // Some municipalities have a specific combination of postcode and street multiple times in several
+        // localities. For example, the street "Feldgasse" in the municipality of Großebersdorf with the
+        // the postcode 2203 exists four times, namely in the localities Eibesbrunn, Großebersdorf,
+        // Manhartsbrunn, and Putzing. If this is the case, we need to add the "addr:suburb" tag to the value of
+        // the locality.
+        final String suburb = municipalityHasAmbiguousAddresses ? locality : null;
+
+        // The template is shared by all addresses of the street and not copied, only viewed together with the
+        // house number and the address date.
+        return new AddressTagMap(AddressDictionary.getTagTemplate(municipality, suburb, postcode, type, streetOrPlace),
+                houseNumber, addressDate);
+    }
+
+    public String getDisplayString() {
+        return streetOrPlace + " " + houseNumber + ", " + postcode + " " + municipality + " (" + COUNTRY + ")";
+    }
+
+    public LatLon getCenter() {
+        return center;
+    }
+
+    public String getMunicipality() {
+        return municipality;
+    }
+
+    public String getLocality() {
+        return locality;
+    }
+
+    public String getPostcode() {
+        return postcode;
+    }
+
+    public String getStreetOrPlace() {
+        return streetOrPlace;
+    }
+
+    public String getHouseNumber() {
+        return houseNumber;
+    }
+
+    public boolean hasAmbiguousAddresses() {
+        return municipalityHasAmbiguousAddresses;
+    }
+
+    public String getAddressDate() {
+        return addressDate;
+    }
+
+    public String getCopyright() {
+        return copyright;
+    }
+
+    public double getDistance() {
+        return distance;
+    }
+
+    public String getAddressType() {
+        return addressType;
+    }
+
+    public void setAddressType(String addressType) {
+        this.addressType = AddressDictionary.intern(addressType);
+    }
+}
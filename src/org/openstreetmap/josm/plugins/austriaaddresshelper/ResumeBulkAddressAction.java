@@ -0,0 +1,136 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.austriaaddresshelper;
+
+import static org.openstreetmap.josm.tools.I18n.tr;
+import static org.openstreetmap.josm.tools.I18n.trn;
+
+import java.awt.event.ActionEvent;
+import java.awt.event.KeyEvent;
+import java.io.IOException;
+
+import javax.swing.JOptionPane;
+
+import org.openstreetmap.josm.actions.JosmAction;
+import org.openstreetmap.josm.gui.MainApplication;
+import org.openstreetmap.josm.gui.Notification;
+import org.openstreetmap.josm.gui.layer.OsmDataLayer;
+import org.openstreetmap.josm.gui.util.GuiHelper;
+import org.openstreetmap.josm.tools.ImageProvider;
+import org.openstreetmap.josm.tools.Logging;
+import org.openstreetmap.josm.tools.Shortcut;
+
+/**
+ * Resumes a bulk run that was interrupted, e.g. because JOSM crashed, from its {@link BatchJournal}.
+ */
+public class ResumeBulkAddressAction extends JosmAction {
+
+    // Whether there is a run to resume does not change with the layers or the selection, so the runs update the
+    // enabled state of the action themselves.
+    private static ResumeBulkAddressAction instance;
+
+    public ResumeBulkAddressAction() {
+        super(tr("Resume Address Run"), new ImageProvider("icon.png"), tr("Resume an interrupted address run"),
+                Shortcut.registerShortcut("Resume Address Run", tr("Resume Address Run"),
+                        KeyEvent.CHAR_UNDEFINED, Shortcut.NONE), false, "resumeAddressRun",
+                true);
+        instance = this;
+    }
+
+    /**
+     * Updates the enabled state of the action after a run was started or finished.
+     */
+    public static void refreshEnabledState() {
+        final ResumeBulkAddressAction action = instance;
+
+        if (action != null) {
+            GuiHelper.runInEDT(action::updateEnabledState);
+        }
+    }
+
+    @Override
+    public void actionPerformed(ActionEvent event) {
+        resume();
+    }
+
+    /**
+     * Resumes the interrupted run in the current edit layer, provided it was started there.
+     */
+    public static void resume() {
+        final OsmDataLayer layer = MainApplication.getLayerManager().getEditLayer();
+
+        if (layer == null) {
+            return;
+        }
+
+        // The journal of a running run is not interrupted, resuming it would fetch its objects a second time.
+        if (BulkAddressTask.isRunning()) {
+            new Notification(tr("Austria Address Helper<br>An address run is in progress. Wait until it is finished."))
+                    .setIcon(JOptionPane.WARNING_MESSAGE)
+                    .show();
+
+            return;
+        }
+
+        if (!BatchJournal.exists()) {
+            new Notification(tr("Austria Address Helper<br>There is no interrupted address run to resume."))
+                    .setIcon(JOptionPane.INFORMATION_MESSAGE)
+                    .show();
+
+            return;
+        }
+
+        final BatchJournal.State state;
+
+        try {
+            state = BatchJournal.read(layer);
+        } catch (IOException e) {
+            Logging.trace(e);
+            new Notification(
+                    "<strong>" + tr("Austria Address Helper") + "</strong>" +
+                            tr("An unexpected exception occurred:") + e.toString()
+            )
+                    .setIcon(JOptionPane.ERROR_MESSAGE)
+                    .show();
+
+            return;
+        }
+
+        if (state.isOtherLayer()) {
+            new Notification(
+                    "<strong>" + tr("Austria Address Helper") + "</strong><br />" +
+                            tr("The interrupted address run was started in the layer \"{0}\". Make that layer the active layer to resume it.",
+                                    state.getLayerName())
+            )
+                    .setIcon(JOptionPane.WARNING_MESSAGE)
+                    .show();
+
+            return;
+        }
+
+        if (state.getQueue().isEmpty()) {
+            new Notification(tr("Austria Address Helper<br>None of the objects of the interrupted address run exist in the current layer."))
+                    .setIcon(JOptionPane.WARNING_MESSAGE)
+                    .show();
+
+            return;
+        }
+
+        if (state.getMissing() > 0) {
+            new Notification(
+                    "<strong>" + tr("Austria Address Helper") + "</strong><br />" +
+                            trn("{0} object of the interrupted address run no longer exists or has changed and is skipped.",
+                                    "{0} objects of the interrupted address run no longer exist or have changed and are skipped.",
+                                    state.getMissing(), state.getMissing())
+            )
+                    .setIcon(JOptionPane.WARNING_MESSAGE)
+                    .show();
+        }
+
+        MainApplication.worker.submit(new BulkAddressTask(layer, state));
+    }
+
+    @Override
+    protected void updateEnabledState() {
+        setEnabled(getLayerManager().getEditDataSet() != null && BatchJournal.exists() && !BulkAddressTask.isRunning());
+    }
+}
@@ -0,0 +1,154 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.austriaaddresshelper;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.openstreetmap.josm.data.coor.LatLon;
+
+/**
+ * Heap report for resolved addresses: bytes allocated per address for creating the address and its tags, the way the
+ * plugin used to (plain fields and a new TreeMap per address) compared to the interned components and shared tag
+ * templates of {@link AddressDictionary}.
+ * <p>
+ * Both variants get the same input, the strings as the JSON parser returns them for every answer of the reverse
+ * geocoder. Creating those strings is not measured, it is the same for both variants. No HTTP requests are made. Run
+ * it with the plugin classes on the class path, optionally passing the number of streets and house numbers per street.
+ */
+public final class AddressTagsAllocationBenchmark {
+    private static final int ROUNDS = 5;
+
+    private AddressTagsAllocationBenchmark() {
+        // Hide default constructor
+    }
+
+    public static void main(String[] args) {
+        final int streets = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        final int houseNumbersPerStreet = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+
+        // Warm up so that the JIT has compiled both variants before measuring.
+        for (int i = 0; i < ROUNDS; i++) {
+            measure(parseAnswers(streets, houseNumbersPerStreet), true);
+            measure(parseAnswers(streets, houseNumbersPerStreet), false);
+            AddressDictionary.clear();
+        }
+
+        System.out.println(streets * houseNumbersPerStreet + " addresses in " + streets + " streets");
+        System.out.println("Before (fields and TreeMap per address): "
+                + measure(parseAnswers(streets, houseNumbersPerStreet), true) + " bytes per address");
+        AddressDictionary.clear();
+        System.out.println("After (ResolvedAddress and getTags()): "
+                + measure(parseAnswers(streets, houseNumbersPerStreet), false) + " bytes per address");
+    }
+
+    /**
+     * Creates the strings of the geocoder answers. Every answer is parsed separately, so equal values are separate
+     * string instances, just like the JSON parser returns them.
+     */
+    private static List<String[]> parseAnswers(int streets, int houseNumbersPerStreet) {
+        final List<String[]> answers = new ArrayList<>(streets * houseNumbersPerStreet);
+
+        for (int street = 0; street < streets; street++) {
+            for (int houseNumber = 1; houseNumber <= houseNumbersPerStreet; houseNumber++) {
+                answers.add(new String[] {
+                    new String("Großebersdorf"), new String("Eibesbrunn"), new String("2203"),
+                    "Feldgasse " + street, Integer.toString(houseNumber), new String("street"),
+                    new String("2024-10-01"), new String("Adressdaten: BEV")
+                });
+            }
+        }
+
+        return answers;
+    }
+
+    private static long measure(List<String[]> answers, boolean legacy) {
+        final List<Object> addresses = new ArrayList<>(answers.size());
+        final List<Map<String, String>> tags = new ArrayList<>(answers.size());
+        final long before = getAllocatedBytes();
+
+        for (String[] answer : answers) {
+            final boolean ambiguous = answer[3].endsWith("0");
+
+            if (legacy) {
+                final LegacyAddress address = new LegacyAddress(null, answer[0], answer[1], answer[2], answer[3],
+                        answer[4], ambiguous, answer[5], answer[6], answer[7], 0);
+                addresses.add(address);
+                tags.add(address.getTags());
+            } else {
+                final ResolvedAddress address = new ResolvedAddress(null, answer[0], answer[1], answer[2], answer[3],
+                        answer[4], ambiguous, answer[5], answer[6], answer[7], 0);
+                addresses.add(address);
+                tags.add(address.getTags());
+            }
+        }
+
+        final long after = getAllocatedBytes();
+
+        // Keep the addresses and maps reachable until after the measurement.
+        if (addresses.size() != answers.size() || tags.size() != answers.size()) {
+            throw new IllegalStateException();
+        }
+
+        return (after - before) / answers.size();
+    }
+
+    private static long getAllocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+                .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * The fields and tags of a resolved address as the plugin kept them before the address dictionary was
+     * introduced: the parsed strings as they are and a new TreeMap for the tags.
+     */
+    private static final class LegacyAddress {
+        private final LatLon center;
+        private final String municipality;
+        private final String locality;
+        private final String postcode;
+        private final String streetOrPlace;
+        private final String houseNumber;
+        private final boolean municipalityHasAmbiguousAddresses;
+        private final String addressType;
+        private final String addressDate;
+        private final String copyright;
+        private final double distance;
+
+        LegacyAddress(LatLon center, String municipality, String locality, String postcode, String streetOrPlace,
+                      String houseNumber, boolean municipalityHasAmbiguousAddresses, String addressType,
+                      String addressDate, String copyright, double distance) {
+            this.center = center;
+            this.municipality = municipality;
+            this.locality = locality;
+            this.postcode = postcode;
+            this.streetOrPlace = streetOrPlace;
+            this.houseNumber = houseNumber;
+            this.municipalityHasAmbiguousAddresses = municipalityHasAmbiguousAddresses;
+            this.addressType = addressType;
+            this.addressDate = addressDate;
+            this.copyright = copyright;
+            this.distance = distance;
+        }
+
+        Map<String, String> getTags() {
+            final Map<String, String> tags = new TreeMap<>();
+
+            tags.put("addr:country", ResolvedAddress.COUNTRY);
+            tags.put("addr:city", municipality);
+
+            if (municipalityHasAmbiguousAddresses) {
+                tags.put("addr:suburb", locality);
+            }
+
+            tags.put("addr:postcode", postcode);
+            tags.put("addr:" + addressType, streetOrPlace);
+            tags.put("addr:housenumber", houseNumber);
+            tags.put("at_bev:addr_date", addressDate);
+
+            return tags;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.austriaaddresshelper;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+
+/**
+ * Unit tests of {@link AddressIndex}: the index has to follow the changes of its data set without being rebuilt.
+ */
+class AddressIndexTest {
+    private DataSet dataSet;
+    private Node first;
+    private Node second;
+
+    @BeforeEach
+    void setUp() {
+        AddressIndex.clear();
+
+        dataSet = new DataSet();
+        first = createAddress("1");
+        second = createAddress("1");
+        dataSet.addPrimitive(first);
+        dataSet.addPrimitive(second);
+    }
+
+    private static Node createAddress(String houseNumber) {
+        final Node node = new Node(new LatLon(48.38, 16.49));
+        node.put("addr:city", "Großebersdorf");
+        node.put("addr:suburb", "Eibesbrunn");
+        node.put("addr:postcode", "2203");
+        node.put("addr:street", "Feldgasse");
+        node.put("addr:housenumber", houseNumber);
+        return node;
+    }
+
+    @Test
+    void testInitialDuplicates() {
+        assertEquals(new HashSet<>(Arrays.asList(first, second)),
+                new HashSet<>(AddressIndex.forDataSet(dataSet).getPrimitivesWithSameAddress(first)));
+    }
+
+    @Test
+    void testPrimitiveAdded() {
+        final AddressIndex index = AddressIndex.forDataSet(dataSet);
+        final Node third = createAddress("1");
+        dataSet.addPrimitive(third);
+
+        assertEquals(3, index.getPrimitivesWithSameAddress(first).size());
+        assertTrue(index.getPrimitivesWithSameAddress(first).contains(third));
+    }
+
+    @Test
+    void testPrimitiveRemoved() {
+        final AddressIndex index = AddressIndex.forDataSet(dataSet);
+        dataSet.removePrimitive(second);
+
+        assertEquals(Collections.singletonList(first), index.getPrimitivesWithSameAddress(first));
+        assertTrue(index.getPrimitivesWithSameAddress(second).isEmpty());
+    }
+
+    @Test
+    void testTagsChanged() {
+        final AddressIndex index = AddressIndex.forDataSet(dataSet);
+        second.put("addr:housenumber", "3");
+
+        assertEquals(Collections.singletonList(first), index.getPrimitivesWithSameAddress(first));
+        assertEquals(Collections.singletonList(second), index.getPrimitivesWithSameAddress(second));
+
+        second.put("addr:housenumber", "1");
+
+        assertEquals(2, index.getPrimitivesWithSameAddress(first).size());
+    }
+
+    @Test
+    void testHouseNumberRemoved() {
+        final AddressIndex index = AddressIndex.forDataSet(dataSet);
+        second.put("addr:housenumber", null);
+
+        assertEquals(Collections.singletonList(first), index.getPrimitivesWithSameAddress(first));
+        assertTrue(index.getPrimitivesWithSameAddress(second).isEmpty());
+    }
+
+    @Test
+    void testHiddenPrimitivesAreIndexed() {
+        // Filtered objects are not usable, but they are duplicates nevertheless.
+        second.setDisabledState(true);
+
+        assertEquals(2, AddressIndex.forDataSet(dataSet).getPrimitivesWithSameAddress(first).size());
+    }
+
+    @Test
+    void testAddressKey() {
+        assertEquals(AddressIndex.getAddressKey(first), AddressIndex.getAddressKey(second));
+        assertNull(AddressIndex.getAddressKey(new Node(new LatLon(48.38, 16.49))));
+    }
+}
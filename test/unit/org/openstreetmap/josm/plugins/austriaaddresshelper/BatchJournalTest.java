@@ -0,0 +1,231 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.austriaaddresshelper;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.gui.layer.OsmDataLayer;
+import org.openstreetmap.josm.spi.preferences.Config;
+import org.openstreetmap.josm.spi.preferences.IBaseDirectories;
+import org.openstreetmap.josm.testutils.annotations.BasicPreferences;
+
+/**
+ * Unit tests of {@link BatchJournal}: writing a run and reading it back, and rejecting objects that cannot be
+ * identified any more.
+ */
+@BasicPreferences
+class BatchJournalTest {
+    @TempDir
+    File tempDir;
+
+    private IBaseDirectories originalDirectories;
+    private OsmDataLayer layer;
+    private Node resolved;
+    private Node review;
+    private Node failed;
+    private Node uploaded;
+
+    @BeforeEach
+    void setUp() {
+        // The journal is kept in the user data directory.
+        originalDirectories = Config.getDirs();
+        Config.setBaseDirectoriesProvider(new IBaseDirectories() {
+            @Override
+            public File getPreferencesDirectory(boolean createIfMissing) {
+                return tempDir;
+            }
+
+            @Override
+            public File getUserDataDirectory(boolean createIfMissing) {
+                return tempDir;
+            }
+
+            @Override
+            public File getCacheDirectory(boolean createIfMissing) {
+                return tempDir;
+            }
+        });
+
+        final DataSet dataSet = new DataSet();
+        resolved = new Node(new LatLon(48.36, 16.47));
+        review = new Node(new LatLon(48.37, 16.48));
+        failed = new Node(new LatLon(48.38, 16.49));
+        // An object that exists on the server keeps its ID in every session.
+        uploaded = new Node(1234, 1);
+        uploaded.setCoor(new LatLon(48.39, 16.50));
+
+        for (Node node : Arrays.asList(resolved, review, failed, uploaded)) {
+            dataSet.addPrimitive(node);
+        }
+
+        layer = new OsmDataLayer(dataSet, "Großebersdorf", null);
+    }
+
+    @AfterEach
+    void tearDown() {
+        layer.destroy();
+        Config.setBaseDirectoriesProvider(originalDirectories);
+    }
+
+    private static ResolvedAddress createAddress(String houseNumber, String addressType) {
+        return new ResolvedAddress(new LatLon(48.36, 16.47), "Großebersdorf", "Eibesbrunn", "2203", "Feldgasse",
+                houseNumber, true, addressType, "2024-10-01", "Adressdaten: BEV", 1.5);
+    }
+
+    private void writeRun() throws IOException {
+        try (BatchJournal journal = BatchJournal.start(layer, Arrays.asList(resolved, review, failed, uploaded))) {
+            journal.writeResolved(resolved, createAddress("1", "street"));
+            journal.writeReview(new AddressReviewItem(review, createAddress("3", null),
+                    Collections.singletonList("https://www.openstreetmap.org/node/1"), "Duplicate"));
+            journal.writeReview(AddressReviewItem.failed(failed, "Address lookup failed"));
+        }
+    }
+
+    @Test
+    void testRoundTrip() throws IOException {
+        writeRun();
+        assertTrue(BatchJournal.exists());
+
+        final BatchJournal.State state = BatchJournal.read(layer);
+
+        assertFalse(state.isOtherLayer());
+        assertEquals("Großebersdorf", state.getLayerName());
+        assertEquals(Arrays.asList(resolved, review, failed, uploaded), state.getQueue());
+        assertEquals(0, state.getMissing());
+
+        final ResolvedAddress address = state.getResolvedAddresses().get(resolved);
+        assertEquals(Collections.singleton(resolved), state.getResolvedAddresses().keySet());
+        assertEquals("Großebersdorf", address.getMunicipality());
+        assertEquals("Eibesbrunn", address.getLocality());
+        assertEquals("2203", address.getPostcode());
+        assertEquals("Feldgasse", address.getStreetOrPlace());
+        assertEquals("1", address.getHouseNumber());
+        assertTrue(address.hasAmbiguousAddresses());
+        assertEquals("street", address.getAddressType());
+        assertEquals("2024-10-01", address.getAddressDate());
+        assertEquals("Adressdaten: BEV", address.getCopyright());
+        assertEquals(1.5, address.getDistance(), 1e-9);
+        assertEquals(48.36, address.getCenter().lat(), 1e-9);
+
+        assertEquals(2, state.getReviewItems().size());
+
+        final AddressReviewItem reviewItem = state.getReviewItems().get(0);
+        assertEquals(review, reviewItem.getPrimitive());
+        assertNull(reviewItem.getAddress().getAddressType());
+        assertEquals(Collections.singletonList("https://www.openstreetmap.org/node/1"), reviewItem.getDuplicateUrls());
+        assertEquals("Duplicate", reviewItem.getReason());
+
+        final AddressReviewItem failedItem = state.getReviewItems().get(1);
+        assertEquals(failed, failedItem.getPrimitive());
+        assertNull(failedItem.getAddress());
+        assertEquals("Address lookup failed", failedItem.getReason());
+
+        BatchJournal.delete();
+        assertFalse(BatchJournal.exists());
+    }
+
+    @Test
+    void testResumedJournal() throws IOException {
+        writeRun();
+
+        // A resumed run appends to the journal of the interrupted one.
+        try (BatchJournal journal = BatchJournal.resume()) {
+            journal.writeResolved(failed, createAddress("5", "place"));
+        }
+
+        final BatchJournal.State state = BatchJournal.read(layer);
+
+        assertEquals("place", state.getResolvedAddresses().get(failed).getAddressType());
+        assertEquals(2, state.getResolvedAddresses().size());
+    }
+
+    @Test
+    void testTruncatedLastLine() throws IOException {
+        writeRun();
+
+        // JOSM was killed while writing a record.
+        Files.write(BatchJournal.getFile().toPath(),
+                "{\"type\":\"resolved\",\"id\":\"node/".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+        final BatchJournal.State state = BatchJournal.read(layer);
+
+        assertEquals(4, state.getQueue().size());
+        assertEquals(1, state.getResolvedAddresses().size());
+        assertEquals(2, state.getReviewItems().size());
+    }
+
+    @Test
+    void testOtherLayer() throws IOException {
+        writeRun();
+
+        final OsmDataLayer otherLayer = new OsmDataLayer(layer.getDataSet(), "Wolkersdorf", null);
+        final BatchJournal.State state = BatchJournal.read(otherLayer);
+
+        assertTrue(state.isOtherLayer());
+        assertEquals("Großebersdorf", state.getLayerName());
+        assertTrue(state.getQueue().isEmpty());
+        assertTrue(state.getResolvedAddresses().isEmpty());
+        assertTrue(state.getReviewItems().isEmpty());
+    }
+
+    @Test
+    void testLayerSavedToFile() throws IOException {
+        writeRun();
+
+        final OsmDataLayer savedLayer = new OsmDataLayer(layer.getDataSet(), "Großebersdorf",
+                new File(tempDir, "grossebersdorf.osm"));
+
+        assertTrue(BatchJournal.read(savedLayer).isOtherLayer());
+    }
+
+    @Test
+    void testOtherSession() throws IOException {
+        writeRun();
+
+        // Simulate a restart of JOSM: new objects got their IDs in the session that wrote the journal.
+        final File file = BatchJournal.getFile();
+        final String journal = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+        Files.write(file.toPath(), journal.replaceFirst("\"session\":\"[^\"]*\"", "\"session\":\"other\"")
+                .getBytes(StandardCharsets.UTF_8));
+
+        final BatchJournal.State state = BatchJournal.read(layer);
+
+        assertFalse(state.isOtherLayer());
+        assertEquals(Collections.singletonList(uploaded), state.getQueue());
+        assertEquals(3, state.getMissing());
+        assertTrue(state.getResolvedAddresses().isEmpty());
+        assertTrue(state.getReviewItems().isEmpty());
+    }
+
+    @Test
+    void testMovedCenter() throws IOException {
+        writeRun();
+
+        resolved.setCoor(new LatLon(48.361, 16.47));
+
+        final BatchJournal.State state = BatchJournal.read(layer);
+
+        assertEquals(Arrays.asList(review, failed, uploaded), state.getQueue());
+        assertEquals(1, state.getMissing());
+        // The address of the moved object is not applied either.
+        assertTrue(state.getResolvedAddresses().isEmpty());
+        assertEquals(2, state.getReviewItems().size());
+    }
+}
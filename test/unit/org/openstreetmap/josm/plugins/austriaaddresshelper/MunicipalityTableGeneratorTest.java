@@ -0,0 +1,123 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.austriaaddresshelper;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Unit tests of {@link MunicipalityTableGenerator} with a few addresses of the register. The coordinates are given
+ * directly, so no projection is needed.
+ */
+class MunicipalityTableGeneratorTest {
+    @TempDir
+    File tempDir;
+
+    private MunicipalityTableGenerator generator;
+
+    @BeforeEach
+    void setUp() {
+        final Map<String, String> municipalities = new HashMap<>();
+        municipalities.put("31235", "Großebersdorf");
+        municipalities.put("31649", "Wolkersdorf im Weinviertel");
+
+        final Map<String, String> localities = new HashMap<>();
+        localities.put("03305", "Eibesbrunn");
+        localities.put("03306", "Großebersdorf");
+        localities.put("03307", "Manhartsbrunn");
+        localities.put("03421", "Obersdorf");
+
+        // Every locality has its own street code for its Feldgasse.
+        final Map<String, String> streets = new HashMap<>();
+        streets.put("100001", "Feldgasse");
+        streets.put("100002", "Feldgasse");
+        streets.put("100003", "Hauptstraße");
+        streets.put("100004", "Feldgasse");
+        streets.put("100005", "Feldgasse");
+
+        generator = new MunicipalityTableGenerator(municipalities, localities, streets);
+    }
+
+    private MunicipalityTable writeTable() throws IOException {
+        final File file = new File(tempDir, "municipalities.bin");
+
+        try (OutputStream out = Files.newOutputStream(file.toPath())) {
+            generator.createWriter().write(out);
+        }
+
+        return MunicipalityTable.open(file);
+    }
+
+    @Test
+    void testSameStreetNameInTwoLocalities() throws IOException {
+        generator.addAddress("31235", "03305", "2203", "100001", "|1|", 48.36, 16.47);
+        generator.addAddress("31235", "03306", "2203", "100002", "|1|", 48.37, 16.48);
+
+        final MunicipalityTable.Entry entry = writeTable().get("Großebersdorf", "2203");
+
+        assertTrue(entry.hasAmbiguousAddresses());
+        assertEquals(Arrays.asList("Eibesbrunn", "Großebersdorf"), entry.getLocalities());
+        assertEquals(Arrays.asList("Feldgasse"), entry.getStreets());
+    }
+
+    @Test
+    void testDifferentHouseNumbers() throws IOException {
+        generator.addAddress("31235", "03305", "2203", "100001", "|1|", 48.36, 16.47);
+        generator.addAddress("31235", "03306", "2203", "100002", "|2|", 48.37, 16.48);
+        generator.addAddress("31235", "03306", "2203", "100003", "|1|", 48.37, 16.48);
+
+        assertFalse(writeTable().get("Großebersdorf", "2203").hasAmbiguousAddresses());
+    }
+
+    @Test
+    void testDifferentPostcodes() throws IOException {
+        // The same address in another postcode is told apart by the postcode, addr:suburb is not needed for it.
+        generator.addAddress("31235", "03305", "2203", "100001", "|1|", 48.36, 16.47);
+        generator.addAddress("31235", "03307", "2214", "100004", "|1|", 48.40, 16.50);
+
+        final MunicipalityTable table = writeTable();
+
+        assertFalse(table.get("Großebersdorf", "2203").hasAmbiguousAddresses());
+        assertFalse(table.get("Großebersdorf", "2214").hasAmbiguousAddresses());
+    }
+
+    @Test
+    void testExtent() throws IOException {
+        generator.addAddress("31649", "03421", "2120", "100005", "|5|", 48.40, 16.52);
+        generator.addAddress("31649", "03421", "2120", "100005", "|7|", 48.38, 16.55);
+
+        final MunicipalityTable.Entry entry = writeTable().get("Wolkersdorf im Weinviertel", "2120");
+
+        assertEquals(48.38, entry.getMinLat(), 1e-5);
+        assertEquals(16.52, entry.getMinLon(), 1e-5);
+        assertEquals(48.40, entry.getMaxLat(), 1e-5);
+        assertEquals(16.55, entry.getMaxLon(), 1e-5);
+    }
+
+    @Test
+    void testUnknownMunicipality() {
+        assertThrows(IOException.class,
+                () -> generator.addAddress("99999", "03305", "2203", "100001", "|1|", 48.36, 16.47));
+    }
+
+    @Test
+    void testParseLine() throws IOException {
+        assertEquals(Arrays.asList("GKZ", "OKZ", "PLZ"), MunicipalityTableGenerator.parseLine("\uFEFFGKZ;OKZ;PLZ"));
+        assertEquals(Arrays.asList("31235", "Straße \"Am Anger\"; Teil 2", ""),
+                MunicipalityTableGenerator.parseLine("31235;\"Straße \"\"Am Anger\"\"; Teil 2\";"));
+        assertThrows(IOException.class, () -> MunicipalityTableGenerator.parseLine(null));
+    }
+}
@@ -0,0 +1,204 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.austriaaddresshelper;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Unit tests of {@link MunicipalityTable} and {@link MunicipalityTableWriter} with a small fixture table.
+ */
+class MunicipalityTableTest {
+    // Enough records for the binary search to take several steps.
+    private static final int FILLER_RECORDS = 100;
+
+    @TempDir
+    File tempDir;
+
+    private File tableFile;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        final MunicipalityTableWriter writer = new MunicipalityTableWriter();
+
+        // Added out of order on purpose, the writer has to sort the records.
+        final MunicipalityTableWriter.Record grossebersdorf = new MunicipalityTableWriter.Record(31235, 2203,
+                "Großebersdorf");
+        grossebersdorf.setAmbiguous(true);
+        grossebersdorf.addAddress(48.36, 16.47);
+        grossebersdorf.addAddress(48.40, 16.52);
+        for (String locality : new String[] {"Putzing", "Eibesbrunn", "Manhartsbrunn", "Großebersdorf"}) {
+            grossebersdorf.addLocality(locality);
+        }
+        for (String street : new String[] {"Feldgasse", "Hauptstraße", "Am Anger", "Ölbergweg"}) {
+            grossebersdorf.addStreet(street);
+        }
+        writer.add(grossebersdorf);
+
+        for (int i = 0; i < FILLER_RECORDS; i++) {
+            final MunicipalityTableWriter.Record record = new MunicipalityTableWriter.Record(40000 + i, 4000 + i,
+                    "Gemeinde " + i);
+            record.addAddress(48, 14);
+            record.addLocality("Ort " + i);
+            record.addStreet("Straße " + i);
+            writer.add(record);
+        }
+
+        // The same name in another state, only the postcode tells them apart.
+        final MunicipalityTableWriter.Record otherState = new MunicipalityTableWriter.Record(20001, 9020, "Gemeinde 7");
+        otherState.addAddress(46.6, 14.3);
+        writer.add(otherState);
+
+        // A second postcode of the same municipality.
+        final MunicipalityTableWriter.Record secondPostcode = new MunicipalityTableWriter.Record(31235, 2214,
+                "Großebersdorf");
+        secondPostcode.addAddress(48.38, 16.50);
+        secondPostcode.addLocality("Großebersdorf");
+        writer.add(secondPostcode);
+
+        tableFile = new File(tempDir, "municipalities.bin");
+        try (OutputStream out = Files.newOutputStream(tableFile.toPath())) {
+            writer.write(out);
+        }
+    }
+
+    @Test
+    void testRecordLayout() throws IOException {
+        final ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(tableFile.toPath()));
+        final int recordCount = FILLER_RECORDS + 3;
+
+        assertEquals(0x41544d50, buffer.getInt(0));
+        assertEquals(2, buffer.getInt(4));
+        assertEquals(recordCount, buffer.getInt(8));
+
+        // The records are sorted by municipality code and postcode: 20001/9020 first, then 31235/2203 and 31235/2214.
+        final int first = 16;
+        assertEquals(20001, buffer.getInt(first));
+        assertEquals(9020, buffer.getShort(first + 4));
+        assertEquals(0, buffer.get(first + 6));
+
+        final int second = first + 36;
+        assertEquals(31235, buffer.getInt(second));
+        assertEquals(2203, buffer.getShort(second + 4));
+        assertEquals(1, buffer.get(second + 6));
+        assertEquals(48.36, buffer.getFloat(second + 8), 1e-5);
+        assertEquals(16.47, buffer.getFloat(second + 12), 1e-5);
+        assertEquals(48.40, buffer.getFloat(second + 16), 1e-5);
+        assertEquals(16.52, buffer.getFloat(second + 20), 1e-5);
+        assertEquals("Großebersdorf", readString(buffer, buffer.getInt(second + 24)));
+
+        final int localities = buffer.getInt(second + 28);
+        assertEquals(4, buffer.getInt(localities));
+        assertEquals("Eibesbrunn", readString(buffer, buffer.getInt(localities + 4)));
+        assertEquals("Putzing", readString(buffer, buffer.getInt(localities + 16)));
+
+        final int streets = buffer.getInt(second + 32);
+        assertEquals(4, buffer.getInt(streets));
+        // "Ö" is encoded as two bytes starting with 0xc3, so it sorts after all ASCII letters.
+        assertEquals("Ölbergweg", readString(buffer, buffer.getInt(streets + 16)));
+
+        // Both records share the municipality name.
+        assertEquals(buffer.getInt(second + 24), buffer.getInt(second + 36 + 24));
+
+        final int third = second + 36;
+        assertEquals(2214, buffer.getShort(third + 4));
+        assertEquals(first + recordCount * 36, buffer.getInt(first + 24));
+    }
+
+    @Test
+    void testBinarySearch() throws IOException {
+        final MunicipalityTable table = MunicipalityTable.open(tableFile);
+
+        for (int i = 0; i < FILLER_RECORDS; i++) {
+            final MunicipalityTable.Entry entry = table.get("Gemeinde " + i, Integer.toString(4000 + i));
+            assertNotNull(entry);
+            assertEquals(40000 + i, entry.getMunicipalityCode());
+            assertNull(table.get("Gemeinde " + i, Integer.toString(4001 + i)));
+        }
+
+        assertEquals(31235, table.get("Großebersdorf", "2203").getMunicipalityCode());
+        assertEquals(31235, table.get("Großebersdorf", "2214").getMunicipalityCode());
+        assertNull(table.get("Großebersdorf", "2204"));
+
+        // The same name in two states
+        assertEquals(40007, table.get("Gemeinde 7", "4007").getMunicipalityCode());
+        assertEquals(20001, table.get("Gemeinde 7", "9020").getMunicipalityCode());
+
+        assertNull(table.get("Unbekannt", "2203"));
+        assertNull(table.get("Großebersdorf", "22030"));
+        assertNull(table.get("Großebersdorf", "A203"));
+        assertNull(table.get(null, "2203"));
+        assertTrue(table.containsMunicipality("Großebersdorf"));
+        assertFalse(table.containsMunicipality("Unbekannt"));
+    }
+
+    @Test
+    void testEntry() throws IOException {
+        final MunicipalityTable.Entry entry = MunicipalityTable.open(tableFile).get("Großebersdorf", "2203");
+
+        assertEquals("Großebersdorf", entry.getMunicipality());
+        assertTrue(entry.hasAmbiguousAddresses());
+        assertEquals(48.36, entry.getMinLat(), 1e-5);
+        assertEquals(16.52, entry.getMaxLon(), 1e-5);
+        assertEquals(Arrays.asList("Eibesbrunn", "Großebersdorf", "Manhartsbrunn", "Putzing"), entry.getLocalities());
+        assertEquals(Arrays.asList("Am Anger", "Feldgasse", "Hauptstraße", "Ölbergweg"), entry.getStreets());
+
+        for (String locality : entry.getLocalities()) {
+            assertTrue(entry.containsLocality(locality));
+        }
+        for (String street : entry.getStreets()) {
+            assertTrue(entry.containsStreet(street));
+        }
+
+        assertFalse(entry.containsLocality("Wolkersdorf"));
+        assertFalse(entry.containsLocality(null));
+        assertFalse(entry.containsStreet("Feld"));
+        assertFalse(entry.containsStreet("Feldgassen"));
+        assertFalse(entry.containsStreet("Hauptstrasse"));
+        assertFalse(entry.containsStreet("A"));
+        assertFalse(entry.containsStreet("Zwerggasse"));
+
+        assertFalse(MunicipalityTable.open(tableFile).get("Gemeinde 7", "9020").hasAmbiguousAddresses());
+    }
+
+    @Test
+    void testDuplicateRecord() {
+        final MunicipalityTableWriter writer = new MunicipalityTableWriter();
+        writer.add(new MunicipalityTableWriter.Record(31235, 2203, "Großebersdorf"));
+        writer.add(new MunicipalityTableWriter.Record(31235, 2203, "Großebersdorf"));
+
+        assertThrows(IOException.class, () -> writer.write(new ByteArrayOutputStream()));
+    }
+
+    @Test
+    void testInvalidFile() throws IOException {
+        final File file = new File(tempDir, "invalid.bin");
+        Files.write(file.toPath(), "not a municipality table".getBytes(StandardCharsets.UTF_8));
+
+        assertThrows(IOException.class, () -> MunicipalityTable.open(file));
+    }
+
+    private static String readString(ByteBuffer buffer, int offset) {
+        final byte[] bytes = new byte[buffer.getShort(offset) & 0xffff];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = buffer.get(offset + 2 + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}